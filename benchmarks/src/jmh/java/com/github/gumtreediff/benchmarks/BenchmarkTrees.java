@@ -0,0 +1,94 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.benchmarks;
+
+import com.github.gumtreediff.gen.jdt.JdtTreeGenerator;
+import com.github.gumtreediff.io.TreeIoUtils;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Resolves the input specifications used as benchmark parameters. An input is either
+ * <code>random:N</code>, a synthetic tree of N nodes, or the path of a Java file relative
+ * to the root of the GumTree checkout (set through the gumtree.benchmarks.root property).
+ * The destination tree of a pair is always an edited copy of the source tree.
+ */
+public final class BenchmarkTrees {
+
+    public static final String RANDOM_PREFIX = "random:";
+
+    public static final double EDIT_RATE = 0.05D;
+
+    private static final long SEED = 42L;
+
+    private static final File ROOT = new File(System.getProperty("gumtree.benchmarks.root", "."));
+
+    private BenchmarkTrees() {}
+
+    public static boolean isRandom(String input) {
+        return input.startsWith(RANDOM_PREFIX);
+    }
+
+    /**
+     * Returns the raw text that the parse phase has to process: the Java source for files,
+     * the XML serialization of the tree for synthetic inputs.
+     */
+    public static String source(String input) throws Exception {
+        if (isRandom(input))
+            return TreeIoUtils.toXml(load(input)).toString();
+        else
+            return new String(Files.readAllBytes(new File(ROOT, input).toPath()), StandardCharsets.UTF_8);
+    }
+
+    public static TreeContext parse(String input, String source) throws IOException {
+        if (isRandom(input))
+            return TreeIoUtils.fromXml().generateFromString(source);
+        else
+            return new JdtTreeGenerator().generateFromString(source);
+    }
+
+    public static TreeContext load(String input) throws Exception {
+        if (isRandom(input))
+            return SyntheticTrees.random(Integer.parseInt(input.substring(RANDOM_PREFIX.length())), SEED);
+        else
+            return parse(input, source(input));
+    }
+
+    public static TreeContext edited(TreeContext src) {
+        return SyntheticTrees.mutate(src, EDIT_RATE, SEED);
+    }
+
+    /**
+     * Returns a copy of the given tree with the same ids and metrics, and no node marked as matched,
+     * so that every benchmark invocation starts from a pristine tree.
+     */
+    public static ITree fresh(ITree tree) {
+        ITree copy = tree.deepCopy();
+        for (ITree t: copy.getTrees())
+            t.setMatched(false);
+        return copy;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.benchmarks;
+
+import com.github.gumtreediff.actions.ActionGenerator;
+import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Edit script phase: {@link ActionGenerator#generate()} on mappings computed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EditScriptBenchmark {
+
+    @Param({"gumtree"})
+    public String matcher;
+
+    @Param({
+            "random:100",
+            "random:1000",
+            "random:5000",
+            "core/src/main/java/com/github/gumtreediff/matchers/Matcher.java",
+            "core/src/main/java/com/github/gumtreediff/actions/ActionGenerator.java",
+            "core/src/main/java/com/github/gumtreediff/matchers/optimal/rted/RtedAlgorithm.java"
+    })
+    public String input;
+
+    private ITree src;
+
+    private ITree dst;
+
+    private MappingStore mappings;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        TreeContext srcCtx = BenchmarkTrees.load(input);
+        src = BenchmarkTrees.fresh(srcCtx.getRoot());
+        dst = BenchmarkTrees.fresh(BenchmarkTrees.edited(srcCtx).getRoot());
+        Matcher m = Matchers.getInstance().getMatcher(matcher, src, dst);
+        m.match();
+        mappings = m.getMappings();
+    }
+
+    @Benchmark
+    public List<Action> generate() {
+        return new ActionGenerator(src, dst, mappings).generate();
+    }
+}
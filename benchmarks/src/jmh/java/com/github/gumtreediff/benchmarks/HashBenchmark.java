@@ -0,0 +1,80 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.benchmarks;
+
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.tree.hash.HashConsingGenerator;
+import com.github.gumtreediff.tree.hash.HashDictionaryGenerator;
+import com.github.gumtreediff.tree.hash.HashGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing step of the parse phase: hashes a source tree and its edited copy with a fresh generator,
+ * as done when a pair of files is loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HashBenchmark {
+
+    @Param({"dictionary", "hash-consing"})
+    public String generator;
+
+    @Param({
+            "random:5000",
+            "core/src/main/java/com/github/gumtreediff/matchers/Matcher.java",
+            "core/src/main/java/com/github/gumtreediff/actions/ActionGenerator.java",
+            "core/src/main/java/com/github/gumtreediff/matchers/optimal/rted/RtedAlgorithm.java"
+    })
+    public String input;
+
+    private ITree src;
+
+    private ITree dst;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        if (!"dictionary".equals(generator) && !"hash-consing".equals(generator))
+            throw new IllegalArgumentException("Unknown hash generator " + generator);
+        TreeContext srcCtx = BenchmarkTrees.load(input);
+        src = srcCtx.getRoot();
+        dst = BenchmarkTrees.edited(srcCtx).getRoot();
+    }
+
+    @Benchmark
+    public int hash() {
+        HashGenerator g = "dictionary".equals(generator) ? new HashDictionaryGenerator() : new HashConsingGenerator();
+        g.hash(src);
+        g.hash(dst);
+        return src.getHash() + dst.getHash();
+    }
+}
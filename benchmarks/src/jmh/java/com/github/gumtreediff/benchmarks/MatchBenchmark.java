@@ -0,0 +1,112 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.benchmarks;
+
+import com.github.gumtreediff.matchers.ArrayMappingStore;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Match phase: runs one of the matchers registered in {@link Matchers} on a source tree and
+ * an edited copy of it. Matchers mark nodes as matched, so each invocation gets fresh copies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MatchBenchmark {
+
+    @Param({
+            "gumtree",
+            "gumtree-fg",
+            "gumtree-complete",
+            "change-distiller",
+            "xy",
+            "lcs",
+            "rted",
+            "zs",
+            "memo",
+            "hist-ctx",
+            "hist-anc"
+    })
+    public String matcher;
+
+    @Param({
+            "random:100",
+            "random:1000",
+            "random:5000",
+            "core/src/main/java/com/github/gumtreediff/matchers/Matcher.java",
+            "core/src/main/java/com/github/gumtreediff/actions/ActionGenerator.java",
+            "core/src/main/java/com/github/gumtreediff/matchers/optimal/rted/RtedAlgorithm.java"
+    })
+    public String input;
+
+    /**
+     * Mapping store implementation: hash for {@link MappingStore}, array for {@link ArrayMappingStore}.
+     */
+    @Param({"hash", "array"})
+    public String store;
+
+    private ITree src;
+
+    private ITree dst;
+
+    private ITree currentSrc;
+
+    private ITree currentDst;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        if (!Matchers.getInstance().getEntries().contains(matcher))
+            throw new IllegalArgumentException("No matcher registered with id " + matcher);
+        TreeContext srcCtx = BenchmarkTrees.load(input);
+        src = srcCtx.getRoot();
+        dst = BenchmarkTrees.edited(srcCtx).getRoot();
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        currentSrc = BenchmarkTrees.fresh(src);
+        currentDst = BenchmarkTrees.fresh(dst);
+    }
+
+    @Benchmark
+    public MappingStore match() {
+        MappingStore mappings = "array".equals(store)
+                ? new ArrayMappingStore(currentSrc, currentDst) : new MappingStore();
+        Matcher m = Matchers.getInstance().getMatcher(matcher, currentSrc, currentDst, mappings);
+        m.match();
+        return m.getMappings();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.benchmarks;
+
+import com.github.gumtreediff.tree.TreeContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse phase: from raw text to a validated tree context (sizes, heights, hashes and ids computed).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParseBenchmark {
+
+    @Param({
+            "random:100",
+            "random:1000",
+            "random:5000",
+            "core/src/main/java/com/github/gumtreediff/matchers/Matcher.java",
+            "core/src/main/java/com/github/gumtreediff/actions/ActionGenerator.java",
+            "core/src/main/java/com/github/gumtreediff/matchers/optimal/rted/RtedAlgorithm.java"
+    })
+    public String input;
+
+    private String source;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        source = BenchmarkTrees.source(input);
+    }
+
+    @Benchmark
+    public TreeContext parse() throws Exception {
+        return BenchmarkTrees.parse(input, source);
+    }
+}
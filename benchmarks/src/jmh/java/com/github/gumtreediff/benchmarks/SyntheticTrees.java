@@ -0,0 +1,129 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.benchmarks;
+
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random AST-like trees and random edited versions of existing trees.
+ * Inner nodes never carry a label, leaves always do, and the fan-out is skewed
+ * towards small values with a few very wide nodes, like real class bodies.
+ */
+public final class SyntheticTrees {
+
+    private static final int INNER_TYPES = 24;
+
+    private static final int LEAF_TYPES = 8;
+
+    private static final int LABELS = 200;
+
+    private SyntheticTrees() {}
+
+    public static TreeContext random(int size, long seed) {
+        Random rnd = new Random(seed);
+        TreeContext ctx = new TreeContext();
+        ITree root = newInner(ctx, rnd);
+        ctx.setRoot(root);
+
+        List<ITree> inners = new ArrayList<>();
+        inners.add(root);
+        for (int i = 1; i < size; i++) {
+            ITree parent = inners.get(pickParent(rnd, inners.size()));
+            ITree t = rnd.nextInt(3) == 0 ? newInner(ctx, rnd) : newLeaf(ctx, rnd);
+            parent.addChild(t);
+            if (t.getLabel().isEmpty())
+                inners.add(t);
+        }
+        ctx.validate();
+        return ctx;
+    }
+
+    /**
+     * Returns an edited copy of the given tree where roughly rate * size nodes have been
+     * updated, deleted, inserted or moved.
+     */
+    public static TreeContext mutate(TreeContext src, double rate, long seed) {
+        Random rnd = new Random(seed);
+        TreeContext ctx = new TreeContext();
+        ITree root = src.getRoot().deepCopy();
+        ctx.setRoot(root);
+
+        int edits = Math.max(1, (int) (root.getSize() * rate));
+        for (int i = 0; i < edits; i++) {
+            List<ITree> trees = root.getTrees();
+            ITree t = trees.get(rnd.nextInt(trees.size()));
+            switch (rnd.nextInt(4)) {
+                case 0:
+                    if (t.isLeaf())
+                        t.setLabel(label(rnd));
+                    break;
+                case 1:
+                    if (!t.isRoot() && t.isLeaf())
+                        t.getParent().getChildren().remove(t);
+                    break;
+                case 2:
+                    if (!t.isLeaf()) {
+                        ITree leaf = newLeaf(ctx, rnd);
+                        t.getChildren().add(rnd.nextInt(t.getChildren().size() + 1), leaf);
+                        leaf.setParent(t);
+                    }
+                    break;
+                case 3:
+                    ITree target = trees.get(rnd.nextInt(trees.size()));
+                    if (!t.isRoot() && !target.isLeaf() && !target.getParents().contains(t) && target != t) {
+                        t.getParent().getChildren().remove(t);
+                        target.getChildren().add(rnd.nextInt(target.getChildren().size() + 1), t);
+                        t.setParent(target);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        ctx.validate();
+        return ctx;
+    }
+
+    private static int pickParent(Random rnd, int count) {
+        // Favour recently created inner nodes so that the tree grows deep rather than flat.
+        int window = Math.min(count, 16);
+        return count - 1 - rnd.nextInt(window);
+    }
+
+    private static ITree newInner(TreeContext ctx, Random rnd) {
+        int type = rnd.nextInt(INNER_TYPES);
+        return ctx.createTree(type, ITree.NO_LABEL, "Inner" + type);
+    }
+
+    private static ITree newLeaf(TreeContext ctx, Random rnd) {
+        int type = INNER_TYPES + rnd.nextInt(LEAF_TYPES);
+        return ctx.createTree(type, label(rnd), "Leaf" + type);
+    }
+
+    private static String label(Random rnd) {
+        return "id" + rnd.nextInt(LABELS);
+    }
+}
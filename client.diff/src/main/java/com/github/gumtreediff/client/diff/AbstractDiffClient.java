@@ -27,6 +27,7 @@ import com.github.gumtreediff.gen.Generators;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.Matchers;
 import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.tree.hash.FingerprintDictionary;
 
 import java.io.IOException;
 import java.io.PrintStream;
@@ -116,8 +117,18 @@ public abstract class AbstractDiffClient<O extends AbstractDiffClient.Options> e
     }
 
     protected TreeContext getDstTreeContext() {
-        if (dst == null)
+        if (dst == null) {
             dst = getTreeContext(opts.dst);
+            // Intern the labels of both trees in the same dictionary so that they compare by id, and
+            // their hashes in a dictionary of their own so that they are released with them
+            TreeContext src = getSrcTreeContext();
+            if (dst != null && src != null) {
+                dst.setLabelDictionary(src.getLabelDictionary());
+                FingerprintDictionary fingerprints = new FingerprintDictionary();
+                src.setFingerprints(fingerprints);
+                dst.setFingerprints(fingerprints);
+            }
+        }
         return dst;
     }
 
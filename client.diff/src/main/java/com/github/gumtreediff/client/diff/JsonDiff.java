@@ -21,14 +21,14 @@
 package com.github.gumtreediff.client.diff;
 
 import com.github.gumtreediff.actions.ActionGenerator;
-import com.github.gumtreediff.actions.model.Action;
 import com.github.gumtreediff.client.Option;
 import com.github.gumtreediff.client.Register;
 import com.github.gumtreediff.io.ActionsIoUtils;
 import com.github.gumtreediff.io.TreeIoUtils;
 import com.github.gumtreediff.matchers.Matcher;
 
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 @Register(name = "jsondiff", description = "Dump actions in the JSON format",
         options = AbstractDiffClient.Options.class)
@@ -48,10 +48,17 @@ public class JsonDiff extends AbstractDiffClient<AbstractDiffClient.Options> {
         Matcher m = matchTrees();
         ActionGenerator g = new ActionGenerator(getSrcTreeContext().getRoot(),
             getDstTreeContext().getRoot(), m.getMappings());
-        g.generate();
-        List<Action> actions = g.getActions();
+        // The actions are written as they are generated
         try {
-            ActionsIoUtils.toJson(getSrcTreeContext(), actions, m.getMappings()).writeTo(System.out);
+            Writer out = new OutputStreamWriter(System.out);
+            try {
+                ActionsIoUtils.ActionWriter json =
+                        ActionsIoUtils.jsonWriter(getSrcTreeContext(), m.getMappings(), out);
+                g.generate(json);
+                json.finish();
+            } finally {
+                out.close();
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -42,7 +42,7 @@ import javax.swing.tree.TreePath;
 
 import com.github.gumtreediff.actions.TreeClassifier;
 import com.github.gumtreediff.matchers.MappingStore;
-import com.github.gumtreediff.actions.RootsClassifier;
+import com.github.gumtreediff.actions.IndexedTreeClassifier;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.tree.TreeContext;
@@ -71,7 +71,7 @@ public class MappingsPanel extends JPanel implements TreeSelectionListener {
         super(new GridLayout(1, 0));
         this.src = src;
         this.dst = dst;
-        this.classifyTrees = new RootsClassifier(src, dst, m);
+        this.classifyTrees = new IndexedTreeClassifier(src, dst, m, false);
         this.mappings = new MappingStore(m.getMappingSet());
         this.panSrc = new TreePanel(this.src, new MappingsCellRenderer(true));
         this.panSrc.getJTree().addTreeSelectionListener(this);
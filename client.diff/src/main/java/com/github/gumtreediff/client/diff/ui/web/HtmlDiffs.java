@@ -20,7 +20,7 @@
 
 package com.github.gumtreediff.client.diff.ui.web;
 
-import com.github.gumtreediff.actions.RootAndLeavesClassifier;
+import com.github.gumtreediff.actions.IndexedTreeClassifier;
 import com.github.gumtreediff.actions.TreeClassifier;
 import com.github.gumtreediff.algo.StringAlgorithms;
 import com.github.gumtreediff.matchers.MappingStore;
@@ -68,7 +68,7 @@ public final class HtmlDiffs {
     }
 
     public void produce() throws IOException {
-        TreeClassifier c = new RootAndLeavesClassifier(src, dst, matcher);
+        TreeClassifier c = new IndexedTreeClassifier(src, dst, matcher, true);
         TIntIntMap mappingIds = new TIntIntHashMap();
 
         int uId = 1;
@@ -49,6 +49,7 @@ public class DiffView implements Renderable {
         this.fDst = fDst;
         TreeContext src = Generators.getInstance().getTree(fSrc.getAbsolutePath());
         TreeContext dst = Generators.getInstance().getTree(fDst.getAbsolutePath());
+        dst.setLabelDictionary(src.getLabelDictionary());
         long t1 = System.nanoTime();
         Matcher matcher = Matchers.getInstance().getMatcher(matcherName, src.getRoot(), dst.getRoot());
         if (matcher == null) {
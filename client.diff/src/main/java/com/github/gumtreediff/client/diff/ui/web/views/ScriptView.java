@@ -58,6 +58,7 @@ public class ScriptView implements Renderable {
         this.fDst = fDst;
         src = Generators.getInstance().getTree(fSrc.getAbsolutePath());
         dst = Generators.getInstance().getTree(fDst.getAbsolutePath());
+        dst.setLabelDictionary(src.getLabelDictionary());
         Matcher matcher = Matchers.getInstance().getMatcher(src.getRoot(), dst.getRoot());
         matcher.match();
         mappings = matcher.getMappings();
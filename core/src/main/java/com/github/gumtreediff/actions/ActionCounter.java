@@ -0,0 +1,77 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.actions;
+
+import com.github.gumtreediff.tree.ITree;
+
+/**
+ * Sink counting the actions of an edit script by kind.
+ */
+public class ActionCounter implements ActionSink {
+
+    private int inserts;
+
+    private int deletes;
+
+    private int updates;
+
+    private int moves;
+
+    @Override
+    public void insert(ITree node, ITree parent, int position) {
+        inserts++;
+    }
+
+    @Override
+    public void delete(ITree node) {
+        deletes++;
+    }
+
+    @Override
+    public void update(ITree node, String value) {
+        updates++;
+    }
+
+    @Override
+    public void move(ITree node, ITree parent, int position) {
+        moves++;
+    }
+
+    public int getInserts() {
+        return inserts;
+    }
+
+    public int getDeletes() {
+        return deletes;
+    }
+
+    public int getUpdates() {
+        return updates;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public int getTotal() {
+        return inserts + deletes + updates + moves;
+    }
+}
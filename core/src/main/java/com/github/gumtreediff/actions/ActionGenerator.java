@@ -21,59 +21,66 @@
 package com.github.gumtreediff.actions;
 
 import com.github.gumtreediff.actions.model.*;
-import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.tree.AbstractTree;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.impl.Constants;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
+/**
+ * Computes the edit script transforming a source tree into a destination tree according to a
+ * mapping. The source tree is not copied: the script is simulated on an overlay recording the
+ * parent and the position of each node of the evolving source tree (see {@link ChildOrder}),
+ * while the trees and the mappings given to the generator are left untouched.
+ */
 public class ActionGenerator {
 
     private ITree origSrc;
 
-    private ITree newSrc;
-
     private ITree origDst;
 
     private MappingStore origMappings;
 
-    private MappingStore newMappings;
+    private List<Action> actions;
 
-    private Set<ITree> dstInOrder;
+    private ActionSink sink;
 
-    private Set<ITree> srcInOrder;
+    // Nodes of the source tree in pre-order, and their numbers
+    private ITree[] srcNodes;
 
-    private int lastId;
+    private TObjectIntMap<ITree> srcIndex;
 
-    private List<Action> actions;
+    // Nodes of the destination tree in breadth-first order, so that the children of a node are contiguous
+    private ITree[] dstNodes;
+
+    private int[] dstParents;
 
-    private TIntObjectMap<ITree> origSrcTrees;
+    private int[] dstFirstChildren;
 
-    private TIntObjectMap<ITree> cpySrcTrees;
+    // Node of the evolving source tree of each destination node, or ChildOrder.NONE if not yet inserted
+    private int[] dstToSrc;
+
+    // Nodes of the evolving source tree: the source nodes, then the node inserted for each destination
+    // node, then the fake root above the source root
+    private ChildOrder srcOrder;
+
+    private int srcFakeRoot;
+
+    private ITree srcFakeTree;
+
+    private BitSet dstInOrder;
 
     public ActionGenerator(ITree src, ITree dst, MappingStore mappings) {
         this.origSrc = src;
-        this.newSrc = this.origSrc.deepCopy();
         this.origDst = dst;
-
-        origSrcTrees = new TIntObjectHashMap<>();
-        for (ITree t: origSrc.getTrees())
-            origSrcTrees.put(t.getId(), t);
-        cpySrcTrees = new TIntObjectHashMap<>();
-        for (ITree t: newSrc.getTrees())
-            cpySrcTrees.put(t.getId(), t);
-
-        origMappings = new MappingStore();
-        for (Mapping m: mappings)
-            this.origMappings.link(cpySrcTrees.get(m.getFirst().getId()), m.getSecond());
-        this.newMappings = origMappings.copy();
+        this.origMappings = mappings;
     }
 
     public List<Action> getActions() {
@@ -81,190 +88,232 @@ public class ActionGenerator {
     }
 
     public List<Action> generate() {
-        ITree srcFakeRoot = new AbstractTree.FakeTree(newSrc);
-        ITree dstFakeRoot = new AbstractTree.FakeTree(origDst);
-        newSrc.setParent(srcFakeRoot);
-        origDst.setParent(dstFakeRoot);
-
         actions = new ArrayList<>();
-        dstInOrder = new HashSet<>();
-        srcInOrder = new HashSet<>();
-
-        lastId = newSrc.getSize() + 1;
-        newMappings.link(srcFakeRoot, dstFakeRoot);
-
-        List<ITree> bfsDst = TreeUtils.breadthFirst(origDst);
-        for (ITree x: bfsDst) {
-            ITree w = null;
-            ITree y = x.getParent();
-            ITree z = newMappings.getSrcForDst(y);
+        generate(new ActionList(actions));
+        return actions;
+    }
 
-            if (!newMappings.hasDst(x)) {
-                int k = findPos(x);
+    /**
+     * Generates the edit script, passing each action to the given sink as soon as it is decided
+     * instead of collecting them in the list of {@link #getActions()}.
+     */
+    public void generate(ActionSink sink) {
+        this.sink = sink;
+        indexTrees();
+
+        dstInOrder = new BitSet(dstNodes.length);
+        for (int x = 0; x < dstNodes.length; x++) {
+            int w;
+            // The root of the destination is the child of the fake root, like the root of the source
+            int z = x == 0 ? srcFakeRoot : dstToSrc[dstParents[x]];
+
+            if (dstToSrc[x] == ChildOrder.NONE) {
+                int k = x == 0 ? 0 : findPos(x);
                 // Insertion case : insert new node.
-                w = new AbstractTree.FakeTree();
-                w.setId(newId());
                 // In order to use the real nodes from the second tree, we
-                // furnish x instead of w and fake that x has the newly
-                // generated ID.
-                Action ins = new Insert(x, origSrcTrees.get(z.getId()), k);
-                actions.add(ins);
-                //System.out.println(ins);
-                origSrcTrees.put(w.getId(), x);
-                newMappings.link(w, x);
-                z.getChildren().add(k, w);
-                w.setParent(z);
+                // furnish x instead of the inserted node.
+                w = srcNodes.length + x;
+                sink.insert(dstNodes[x], getNode(z), k);
+                dstToSrc[x] = w;
+                srcOrder.insert(z, k, w);
             } else {
-                w = newMappings.getSrcForDst(x);
-                if (!x.equals(origDst)) { // TODO => x != origDst // Case of the root
-                    ITree v = w.getParent();
-                    if (!w.getLabel().equals(x.getLabel())) {
-                        actions.add(new Update(origSrcTrees.get(w.getId()), x.getLabel()));
-                        w.setLabel(x.getLabel());
-                    }
-                    if (!z.equals(v)) {
+                w = dstToSrc[x];
+                if (x != 0) { // Case of the root
+                    int v = srcOrder.getParent(w);
+                    if (!srcNodes[w].hasSameLabel(dstNodes[x]))
+                        sink.update(srcNodes[w], dstNodes[x].getLabel());
+                    if (z != v) {
                         int k = findPos(x);
-                        Action mv = new Move(origSrcTrees.get(w.getId()), origSrcTrees.get(z.getId()), k);
-                        actions.add(mv);
-                        //System.out.println(mv);
-                        int oldk = w.positionInParent();
-                        z.getChildren().add(k, w);
-                        w.getParent().getChildren().remove(oldk);
-                        w.setParent(z);
+                        sink.move(srcNodes[w], getNode(z), k);
+                        srcOrder.remove(w);
+                        srcOrder.insert(z, k, w);
                     }
                 }
             }
 
-            //FIXME not sure why :D
-            srcInOrder.add(w);
-            dstInOrder.add(x);
+            dstInOrder.set(x);
             alignChildren(w, x);
         }
 
+        for (ITree t: origSrc.postOrder())
+            if (!origMappings.hasSrc(t))
+                sink.delete(t);
 
-//        for (ITree w : newSrc.postOrder()) {
-//            if (!newMappings.hasSrc(w)) {
-//                actions.add(new Delete(origSrcTrees.get(w.getId())));
-//                //w.getParent().getChildren().remove(w);
-//            }
-//        }
+        srcOrder = null;
+        dstInOrder = null;
+        this.sink = null;
+    }
 
-        for (ITree targetInOrigSrc: origSrc.postOrder()) {
-            ITree targetInNewSrc = cpySrcTrees.get(targetInOrigSrc.getId());
-            if (!newMappings.hasSrc(targetInNewSrc)) {
-                actions.add(new Delete(origSrcTrees.get(targetInNewSrc.getId())));
-                //w.getParent().getChildren().remove(w);
+    private void indexTrees() {
+        List<ITree> preOrder = origSrc.getTrees();
+        srcNodes = preOrder.toArray(new ITree[preOrder.size()]);
+        srcIndex = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR,
+                ChildOrder.NONE);
+        for (int i = 0; i < srcNodes.length; i++)
+            srcIndex.put(srcNodes[i], i);
+
+        List<ITree> bfs = new ArrayList<>();
+        TIntArrayList parents = new TIntArrayList();
+        TIntArrayList firstChildren = new TIntArrayList();
+        bfs.add(origDst);
+        parents.add(ChildOrder.NONE);
+        for (int x = 0; x < bfs.size(); x++) {
+            firstChildren.add(bfs.size());
+            for (ITree c: bfs.get(x).getChildren()) {
+                bfs.add(c);
+                parents.add(x);
             }
         }
+        dstNodes = bfs.toArray(new ITree[bfs.size()]);
+        dstParents = parents.toArray();
+        dstFirstChildren = firstChildren.toArray();
+        dstToSrc = new int[dstNodes.length];
+        for (int x = 0; x < dstNodes.length; x++) {
+            // The store can still map a destination node to a source node since linked to another one
+            ITree src = origMappings.getSrcForDst(dstNodes[x]);
+            if (src == null || origMappings.getDstForSrc(src) != dstNodes[x])
+                dstToSrc[x] = ChildOrder.NONE;
+            else
+                dstToSrc[x] = srcIndex.get(src);
+        }
 
-        //FIXME should ensure isomorphism.
-        return actions;
+        srcFakeRoot = srcNodes.length + dstNodes.length;
+        srcFakeTree = new AbstractTree.FakeTree(origSrc);
+        srcOrder = new ChildOrder(srcFakeRoot + 1);
+        srcOrder.append(srcFakeRoot, 0);
+        for (int i = 0; i < srcNodes.length; i++)
+            for (ITree c: srcNodes[i].getChildren())
+                srcOrder.append(i, srcIndex.get(c));
     }
 
-    private void alignChildren(ITree w, ITree x) {
-        srcInOrder.removeAll(w.getChildren());
-        dstInOrder.removeAll(x.getChildren());
-
-        List<ITree> s1 = new ArrayList<>();
-        for (ITree c: w.getChildren())
-            if (newMappings.hasSrc(c))
-                if (x.getChildren().contains(newMappings.getDstForSrc(c)))
-                    s1.add(c);
-
-        List<ITree> s2 = new ArrayList<>();
-        for (ITree c: x.getChildren())
-            if (newMappings.hasDst(c))
-                if (w.getChildren().contains(newMappings.getSrcForDst(c)))
-                    s2.add(c);
-
-        List<Mapping> lcs = lcs(s1, s2);
+    // Node of the original trees standing for the given node of the evolving source tree
+    private ITree getNode(int w) {
+        if (w < srcNodes.length)
+            return srcNodes[w];
+        else if (w < srcFakeRoot)
+            return dstNodes[w - srcNodes.length];
+        else
+            return srcFakeTree;
+    }
 
-        for (Mapping m : lcs) {
-            srcInOrder.add(m.getFirst());
-            dstInOrder.add(m.getSecond());
+    private void alignChildren(int w, int x) {
+        int first = dstFirstChildren[x];
+        int last = first + dstNodes[x].getChildren().size();
+        if (last > first)
+            dstInOrder.clear(first, last);
+
+        // Translate the children of x mapped to children of w into the positions of their partners in w
+        int childCount = srcOrder.getChildCount(w);
+        int[] s1 = new int[childCount];
+        Arrays.fill(s1, ChildOrder.NONE);
+        int[] partners = new int[childCount];
+        int[] positions = new int[last - first];
+        int k = 0;
+        for (int c = first; c < last; c++) {
+            int a = dstToSrc[c];
+            if (a != ChildOrder.NONE && srcOrder.getParent(a) == w) {
+                int i = srcOrder.getPosition(a);
+                s1[i] = a;
+                partners[i] = c;
+                positions[k++] = i;
+            }
         }
 
-        for (ITree a : s1) {
-            for (ITree b: s2 ) {
-                if (origMappings.has(a, b)) {
-                    if (!lcs.contains(new Mapping(a, b))) {
-                        int k = findPos(b);
-                        Action mv = new Move(origSrcTrees.get(a.getId()), origSrcTrees.get(w.getId()), k);
-                        actions.add(mv);
-                        //System.out.println(mv);
-                        int oldk = a.positionInParent();
-                        w.getChildren().add(k, a);
-                        if (k  < oldk ) // FIXME this is an ugly way to patch the index
-                            oldk ++;
-                        a.getParent().getChildren().remove(oldk);
-                        a.setParent(w);
-                        srcInOrder.add(a);
-                        dstInOrder.add(b);
-                    }
-                }
+        // The longest common subsequence of the children is the longest increasing subsequence of the positions
+        BitSet lcs = lis(positions, k);
+        for (int i = lcs.nextSetBit(0); i >= 0; i = lcs.nextSetBit(i + 1))
+            dstInOrder.set(partners[i]);
+
+        // Only the nodes of the source tree can move, the inserted ones are not in the mappings
+        for (int i = 0; i < s1.length; i++) {
+            int a = s1[i];
+            int b = partners[i];
+            if (a != ChildOrder.NONE && a < srcNodes.length && !lcs.get(i)) {
+                int pos = findPos(b);
+                sink.move(srcNodes[a], getNode(w), pos);
+                // Inserting the node at pos before removing it from its old position shifts the later ones
+                int oldk = srcOrder.getPosition(a);
+                srcOrder.remove(a);
+                srcOrder.insert(w, pos > oldk ? pos - 1 : pos, a);
+                dstInOrder.set(b);
             }
         }
     }
 
-    private int findPos(ITree x) {
-        ITree y = x.getParent();
-        List<ITree> siblings = y.getChildren();
+    private int findPos(int x) {
+        int first = dstFirstChildren[dstParents[x]];
+
+        if (dstInOrder.nextSetBit(first) == x)
+            return 0;
+
+        int v = dstInOrder.previousSetBit(x - 1);
+        if (v < first) return 0;
+
+        int u = dstToSrc[v];
+        return srcOrder.getPosition(u) + 1;
+    }
 
-        for (ITree c : siblings) {
-            if (dstInOrder.contains(c)) {
-                if (c.equals(x)) return 0;
-                else break;
+    /**
+     * Returns the values of a longest increasing subsequence of the first n given distinct values, in
+     * O(n log n). Among the longest ones, it is the one a longest common subsequence computed by dynamic
+     * programming would give: each element is the earliest that can still start a longest subsequence.
+     */
+    private static BitSet lis(int[] values, int n) {
+        // lengths[k] is the length of the longest increasing subsequence starting at k, computed from the
+        // right; starts[l] is the largest value starting an increasing subsequence of length l + 1
+        int[] lengths = new int[n];
+        int[] starts = new int[n];
+        int longest = 0;
+        for (int k = n - 1; k >= 0; k--) {
+            int lo = 0, hi = longest;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] > values[k]) lo = mid + 1;
+                else hi = mid;
             }
+            starts[lo] = values[k];
+            lengths[k] = lo + 1;
+            if (lo == longest) longest++;
         }
 
-        int xpos = x.positionInParent();
-        ITree v = null;
-        for (int i = 0; i < xpos; i++) {
-            ITree c = siblings.get(i);
-            if (dstInOrder.contains(c)) v = c;
+        BitSet lis = new BitSet();
+        int last = -1;
+        for (int k = 0; k < n && longest > 0; k++) {
+            if (lengths[k] == longest && values[k] > last) {
+                lis.set(values[k]);
+                last = values[k];
+                longest--;
+            }
         }
-
-        //if (v == null) throw new RuntimeException("No rightmost sibling in order");
-        if (v == null) return 0;
-
-        ITree u = newMappings.getSrcForDst(v);
-        // siblings = u.getParent().getChildren();
-        // int upos = siblings.indexOf(u);
-        int upos = u.positionInParent();
-        // int r = 0;
-        // for (int i = 0; i <= upos; i++)
-        // if (srcInOrder.contains(siblings.get(i))) r++;
-        return upos + 1;
+        return lis;
     }
 
-    private int newId() {
-        return ++lastId;
-    }
+    private static class ActionList implements ActionSink {
 
-    private List<Mapping> lcs(List<ITree> x, List<ITree> y) {
-        int m = x.size();
-        int n = y.size();
-        List<Mapping> lcs = new ArrayList<>();
+        private final List<Action> actions;
 
-        int[][] opt = new int[m + 1][n + 1];
-        for (int i = m - 1; i >= 0; i--) {
-            for (int j = n - 1; j >= 0; j--) {
-                if (newMappings.getSrcForDst(y.get(j)).equals(x.get(i))) opt[i][j] = opt[i + 1][j + 1] + 1;
-                else  opt[i][j] = Math.max(opt[i + 1][j], opt[i][j + 1]);
-            }
+        private ActionList(List<Action> actions) {
+            this.actions = actions;
         }
 
-        int i = 0, j = 0;
-        while (i < m && j < n) {
-            if (newMappings.getSrcForDst(y.get(j)).equals(x.get(i))) {
-                lcs.add(new Mapping(x.get(i), y.get(j)));
-                i++;
-                j++;
-            } else if (opt[i + 1][j] >= opt[i][j + 1]) i++;
-            else j++;
+        @Override
+        public void insert(ITree node, ITree parent, int position) {
+            actions.add(new Insert(node, parent, position));
         }
 
-        return lcs;
-    }
+        @Override
+        public void delete(ITree node) {
+            actions.add(new Delete(node));
+        }
+
+        @Override
+        public void update(ITree node, String value) {
+            actions.add(new Update(node, value));
+        }
 
+        @Override
+        public void move(ITree node, ITree parent, int position) {
+            actions.add(new Move(node, parent, position));
+        }
+    }
 }
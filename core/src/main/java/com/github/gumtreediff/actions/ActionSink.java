@@ -0,0 +1,41 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.actions;
+
+import com.github.gumtreediff.tree.ITree;
+
+/**
+ * Receiver of the actions of an edit script, in the order they are decided by the
+ * {@link ActionGenerator}, so that a script can be counted or written without being held in
+ * memory. The nodes are the ones of the {@link com.github.gumtreediff.actions.model.Action}s
+ * the generator would return: inserted nodes are destination nodes, the other ones are
+ * source nodes.
+ */
+public interface ActionSink {
+
+    void insert(ITree node, ITree parent, int position);
+
+    void delete(ITree node);
+
+    void update(ITree node, String value);
+
+    void move(ITree node, ITree parent, int position);
+}
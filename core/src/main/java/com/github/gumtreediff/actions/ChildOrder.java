@@ -0,0 +1,165 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.actions;
+
+import java.util.Arrays;
+
+/**
+ * Parent and children of the nodes of a tree being edited, the nodes being numbered from 0. The
+ * children of each node are kept in an implicit treap, so that inserting or removing a child at
+ * a position and finding the position of a child take a logarithmic time in the number of
+ * siblings, even for very wide nodes.
+ */
+final class ChildOrder {
+
+    static final int NONE = -1;
+
+    private final int[] parents;
+
+    // Root of the treap of the children of each node
+    private final int[] roots;
+
+    // Treap of each node among its siblings
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] sizes;
+
+    // Results of split
+    private int splitLeft;
+    private int splitRight;
+
+    ChildOrder(int capacity) {
+        parents = new int[capacity];
+        roots = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        up = new int[capacity];
+        sizes = new int[capacity];
+        Arrays.fill(parents, NONE);
+        Arrays.fill(roots, NONE);
+    }
+
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    int getChildCount(int parent) {
+        return size(roots[parent]);
+    }
+
+    /**
+     * Returns the position of the given node among the children of its parent.
+     */
+    int getPosition(int node) {
+        int position = size(left[node]);
+        for (int t = node; up[t] != NONE; t = up[t])
+            if (right[up[t]] == t)
+                position += size(left[up[t]]) + 1;
+        return position;
+    }
+
+    void insert(int parent, int position, int node) {
+        left[node] = NONE;
+        right[node] = NONE;
+        sizes[node] = 1;
+        split(roots[parent], position);
+        int r = splitRight;
+        setRoot(parent, merge(merge(splitLeft, node), r));
+        parents[node] = parent;
+    }
+
+    void append(int parent, int node) {
+        insert(parent, getChildCount(parent), node);
+    }
+
+    /**
+     * Removes the given node from the children of its parent.
+     */
+    void remove(int node) {
+        int parent = parents[node];
+        split(roots[parent], getPosition(node));
+        int l = splitLeft;
+        split(splitRight, 1);
+        setRoot(parent, merge(l, splitRight));
+        parents[node] = NONE;
+    }
+
+    private void setRoot(int parent, int root) {
+        roots[parent] = root;
+        if (root != NONE)
+            up[root] = NONE;
+    }
+
+    private int size(int t) {
+        return t == NONE ? 0 : sizes[t];
+    }
+
+    // Deterministic pseudo-random priority of a node
+    private static int priority(int t) {
+        int h = t * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void setLeft(int t, int child) {
+        left[t] = child;
+        if (child != NONE)
+            up[child] = t;
+        sizes[t] = size(left[t]) + size(right[t]) + 1;
+    }
+
+    private void setRight(int t, int child) {
+        right[t] = child;
+        if (child != NONE)
+            up[child] = t;
+        sizes[t] = size(left[t]) + size(right[t]) + 1;
+    }
+
+    // Splits the treap t into its first k nodes (splitLeft) and the others (splitRight)
+    private void split(int t, int k) {
+        if (t == NONE) {
+            splitLeft = NONE;
+            splitRight = NONE;
+        } else if (size(left[t]) < k) {
+            split(right[t], k - size(left[t]) - 1);
+            setRight(t, splitLeft);
+            splitLeft = t;
+        } else {
+            split(left[t], k);
+            setLeft(t, splitRight);
+            splitRight = t;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a == NONE)
+            return b;
+        if (b == NONE)
+            return a;
+        if (priority(a) > priority(b)) {
+            setRight(a, merge(right[a], b));
+            return a;
+        } else {
+            setLeft(b, merge(a, left[b]));
+            return b;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.actions;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.actions.model.Delete;
+import com.github.gumtreediff.actions.model.Insert;
+import com.github.gumtreediff.actions.model.Move;
+import com.github.gumtreediff.actions.model.Update;
+import com.github.gumtreediff.matchers.Mapping;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.IntervalIndex;
+import com.github.gumtreediff.tree.TreeContext;
+
+/**
+ * Classifier keeping the classes of the nodes as bit flags in arrays indexed by pre-order rank
+ * (see {@link IntervalIndex}), set in a single pass over the actions. Testing whether a node is
+ * in a class takes a constant time without hashing, and the sets returned by the getters are
+ * views over the flags, iterated in pre-order. Nodes that the index cannot find by id are kept
+ * aside in a map. When built from a matcher, the actions are streamed from the
+ * {@link ActionGenerator} and never held in a list.
+ *
+ * Without subtree roots, every node of an action is classified, as in {@link RootsClassifier}.
+ * With subtree roots, an inserted or deleted node whose parent is inserted or deleted as well is
+ * not, as in {@link RootAndLeavesClassifier}.
+ */
+public class IndexedTreeClassifier extends TreeClassifier {
+
+    private static final byte DEL = 1;
+
+    private static final byte ADD = 2;
+
+    private static final byte UPD = 4;
+
+    private static final byte MV = 8;
+
+    private final boolean subtreeRoots;
+
+    private NodeFlags srcFlags;
+
+    private NodeFlags dstFlags;
+
+    public IndexedTreeClassifier(TreeContext src, TreeContext dst, Set<Mapping> rawMappings,
+                                 List<Action> actions, boolean subtreeRoots) {
+        super(src, dst, new MappingStore(rawMappings), actions);
+        this.subtreeRoots = subtreeRoots;
+        classify();
+    }
+
+    public IndexedTreeClassifier(TreeContext src, TreeContext dst, Matcher m, boolean subtreeRoots) {
+        super(src, dst, m.getMappings(), null);
+        this.subtreeRoots = subtreeRoots;
+        classify();
+        new ActionGenerator(src.getRoot(), dst.getRoot(), mappings).generate(new Classifier());
+    }
+
+    @Override
+    public void classify() {
+        srcFlags = new NodeFlags(src.getRoot());
+        dstFlags = new NodeFlags(dst.getRoot());
+        srcDelTrees = new FlagSet(srcFlags, DEL);
+        dstAddTrees = new FlagSet(dstFlags, ADD);
+        srcUpdTrees = new FlagSet(srcFlags, UPD);
+        dstUpdTrees = new FlagSet(dstFlags, UPD);
+        srcMvTrees = new FlagSet(srcFlags, MV);
+        dstMvTrees = new FlagSet(dstFlags, MV);
+
+        if (actions == null)
+            return;
+        Classifier c = new Classifier();
+        for (Action a: actions) {
+            if (a instanceof Delete)
+                c.delete(a.getNode());
+            else if (a instanceof Insert)
+                c.insert(a.getNode(), null, 0);
+            else if (a instanceof Update)
+                c.update(a.getNode(), null);
+            else if (a instanceof Move)
+                c.move(a.getNode(), null, 0);
+        }
+    }
+
+    private boolean isClassified(NodeFlags flags, ITree t, byte flag) {
+        if (!flags.has(t, flag))
+            return false;
+        if (subtreeRoots && (flag == DEL || flag == ADD))
+            return t.getParent() == null || !flags.has(t.getParent(), flag);
+        return true;
+    }
+
+    private class Classifier implements ActionSink {
+
+        @Override
+        public void insert(ITree node, ITree parent, int position) {
+            dstFlags.set(node, ADD);
+        }
+
+        @Override
+        public void delete(ITree node) {
+            srcFlags.set(node, DEL);
+        }
+
+        @Override
+        public void update(ITree node, String value) {
+            srcFlags.set(node, UPD);
+            dstFlags.set(mappings.getDstForSrc(node), UPD);
+        }
+
+        @Override
+        public void move(ITree node, ITree parent, int position) {
+            srcFlags.set(node, MV);
+            dstFlags.set(mappings.getDstForSrc(node), MV);
+        }
+    }
+
+    private static class NodeFlags {
+
+        private final IntervalIndex index;
+
+        private final byte[] flags;
+
+        private final Map<ITree, Byte> others = new IdentityHashMap<>();
+
+        private NodeFlags(ITree root) {
+            index = new IntervalIndex(root);
+            flags = new byte[index.size()];
+        }
+
+        private void set(ITree t, byte flag) {
+            if (t == null)
+                return;
+            int r = index.getRank(t);
+            if (r != -1)
+                flags[r] |= flag;
+            else {
+                Byte f = others.get(t);
+                others.put(t, (byte) (f == null ? flag : f | flag));
+            }
+        }
+
+        private boolean has(ITree t, byte flag) {
+            int r = index.getRank(t);
+            if (r != -1)
+                return (flags[r] & flag) != 0;
+            Byte f = others.get(t);
+            return f != null && (f & flag) != 0;
+        }
+    }
+
+    private class FlagSet extends AbstractSet<ITree> {
+
+        private final NodeFlags flags;
+
+        private final byte flag;
+
+        private FlagSet(NodeFlags flags, byte flag) {
+            this.flags = flags;
+            this.flag = flag;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof ITree && isClassified(flags, (ITree) o, flag);
+        }
+
+        @Override
+        public Iterator<ITree> iterator() {
+            return Collections.unmodifiableList(getTrees()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return getTrees().size();
+        }
+
+        private List<ITree> getTrees() {
+            List<ITree> trees = new ArrayList<>();
+            for (int r = 0; r < flags.flags.length; r++)
+                if (isClassified(flags, flags.index.getTree(r), flag))
+                    trees.add(flags.index.getTree(r));
+            for (ITree t: flags.others.keySet())
+                if (isClassified(flags, t, flag))
+                    trees.add(t);
+            return trees;
+        }
+    }
+}
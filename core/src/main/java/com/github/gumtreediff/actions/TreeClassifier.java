@@ -54,23 +54,27 @@ public abstract class TreeClassifier {
     protected List<Action> actions;
 
     public TreeClassifier(TreeContext src, TreeContext dst, Set<Mapping> rawMappings, List<Action> actions) {
-        this(src, dst, rawMappings);
-        this.actions = actions;
+        this(src, dst, new MappingStore(rawMappings), actions);
         classify();
     }
 
     public TreeClassifier(TreeContext src, TreeContext dst, Matcher m) {
-        this(src, dst, m.getMappingSet());
-        ActionGenerator g = new ActionGenerator(src.getRoot(), dst.getRoot(), m.getMappings());
+        this(src, dst, m.getMappings(), null);
+        ActionGenerator g = new ActionGenerator(src.getRoot(), dst.getRoot(), mappings);
         g.generate();
         this.actions = g.getActions();
         classify();
     }
 
-    private TreeClassifier(TreeContext src, TreeContext dst, Set<Mapping> rawMappings) {
+    /**
+     * Initializes the classifier without classifying the actions, for the subclasses that have
+     * to be set up before calling {@link #classify()}.
+     */
+    protected TreeClassifier(TreeContext src, TreeContext dst, MappingStore mappings, List<Action> actions) {
         this.src = src;
         this.dst = dst;
-        this.mappings = new MappingStore(rawMappings);
+        this.mappings = mappings;
+        this.actions = actions;
         this.srcDelTrees = new HashSet<>();
         this.srcMvTrees = new HashSet<>();
         this.srcUpdTrees = new HashSet<>();
@@ -0,0 +1,343 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.algo;
+
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.LabelDictionary;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Q-gram similarity of labels, computing the same value as
+ * {@code StringMetrics.qGramsDistance().compare(a, b)}: the labels are padded with '#', cut into
+ * 3-grams and compared as multisets with the block distance. The q-gram profile of each distinct
+ * label is computed once, as a sorted array of gram ids, so that comparing two labels is a merge of
+ * their profiles. {@link #similarPairs(int[], int[], double)} enumerates the pairs of labels above
+ * a threshold without comparing all of them.
+ *
+ * The profiles are indexed by the ids of a {@link LabelDictionary}, so an instance built on the
+ * dictionary of the trees' contexts reuses their label ids and can be shared by the matchers of a
+ * diff. Instances are not thread-safe.
+ */
+public class LabelSimilarity {
+
+    public static final int Q = 3;
+
+    private static final char PADDING = '#';
+
+    // Slack on the threshold of the filters, so that float rounding cannot prune a valid pair
+    private static final double FILTER_TOLERANCE = 1e-6;
+
+    private final LabelDictionary labels;
+
+    // Grams packed as three 16 bits chars
+    private final TLongIntHashMap gramIds = new TLongIntHashMap();
+
+    private final List<int[]> profiles = new ArrayList<>();
+
+    public LabelSimilarity() {
+        this(new LabelDictionary());
+    }
+
+    public LabelSimilarity(LabelDictionary labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * Returns the id of the given label, computing its profile the first time it is seen.
+     */
+    public int getLabelId(String label) {
+        return ensureProfile(labels.getId(label), label);
+    }
+
+    /**
+     * Returns the id of the label of the given tree, computing its profile the first time it is seen.
+     * The id of a tree whose label is interned in the dictionary of this object is reused.
+     */
+    public int getLabelId(ITree tree) {
+        return ensureProfile(labels.getId(tree), tree.getLabel());
+    }
+
+    /**
+     * Returns the ids of the labels of the given trees.
+     */
+    public int[] getLabelIds(List<ITree> trees) {
+        int[] ids = new int[trees.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = getLabelId(trees.get(i));
+        return ids;
+    }
+
+    private int ensureProfile(int id, String label) {
+        while (profiles.size() <= id)
+            profiles.add(null);
+        if (profiles.get(id) == null)
+            profiles.set(id, computeProfile(label));
+        return id;
+    }
+
+    /**
+     * Returns the sorted gram ids of the label of the given id. A gram occurring several times in
+     * the label occurs as many times in the profile.
+     */
+    public int[] getProfile(int labelId) {
+        return profiles.get(labelId);
+    }
+
+    private int[] computeProfile(String label) {
+        if (label.isEmpty())
+            return new int[0];
+        StringBuilder b = new StringBuilder(label.length() + 2 * (Q - 1));
+        for (int i = 0; i < Q - 1; i++)
+            b.append(PADDING);
+        b.append(label);
+        for (int i = 0; i < Q - 1; i++)
+            b.append(PADDING);
+
+        int[] profile = new int[b.length() - Q + 1];
+        for (int i = 0; i < profile.length; i++) {
+            long gram = 0L;
+            for (int k = 0; k < Q; k++)
+                gram = (gram << 16) | b.charAt(i + k);
+            int gramId = gramIds.get(gram);
+            if (gramId == gramIds.getNoEntryValue() && !gramIds.containsKey(gram)) {
+                gramId = gramIds.size();
+                gramIds.put(gram, gramId);
+            }
+            profile[i] = gramId;
+        }
+        Arrays.sort(profile);
+        return profile;
+    }
+
+    public float similarity(String label1, String label2) {
+        return similarity(getLabelId(label1), getLabelId(label2));
+    }
+
+    public float similarity(int labelId1, int labelId2) {
+        int[] p1 = profiles.get(labelId1);
+        int[] p2 = profiles.get(labelId2);
+        if (p1.length == 0 && p2.length == 0)
+            return 1F;
+        if (p1.length == 0 || p2.length == 0)
+            return 0F;
+        int total = p1.length + p2.length;
+        int distance = labelId1 == labelId2 ? 0 : total - 2 * commonGrams(p1, p2);
+        return 1F - distance / (float) total;
+    }
+
+    private static int commonGrams(int[] p1, int[] p2) {
+        int common = 0;
+        for (int i = 0, j = 0; i < p1.length && j < p2.length; ) {
+            if (p1[i] < p2[j])
+                i++;
+            else if (p1[i] > p2[j])
+                j++;
+            else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Returns the pairs (i, j) such that the similarity of the labels srcIds[i] and dstIds[j] is
+     * strictly greater than the threshold, encoded as i * dstIds.length + j and sorted.
+     *
+     * The similarity is the Dice coefficient of the profiles, so a pair above the threshold t shares
+     * at least t / (2 - t) of the grams of each label. Making the profiles sets (the k-th occurrence
+     * of a gram being its own token) and ordering the tokens from the rarest, two such labels share a
+     * token in the prefixes that leave out fewer grams than that overlap (prefix filtering). Only the
+     * pairs of distinct labels sharing a prefix token are compared.
+     */
+    public long[] similarPairs(int[] srcIds, int[] dstIds, double threshold) {
+        int[] srcLabels = distinct(srcIds);
+        int[] dstLabels = distinct(dstIds);
+        double t = threshold - FILTER_TOLERANCE;
+
+        // Pairs of distinct labels above the threshold, as indexes in srcLabels and dstLabels
+        TLongArrayList labelPairs = new TLongArrayList();
+        if (t <= 0D) {
+            for (int a = 0; a < srcLabels.length; a++)
+                for (int b = 0; b < dstLabels.length; b++)
+                    if (similarity(srcLabels[a], dstLabels[b]) > threshold)
+                        labelPairs.add((long) a * dstLabels.length + b);
+        }
+        else {
+            int[][] srcTokens = new int[srcLabels.length][];
+            int[][] dstTokens = new int[dstLabels.length][];
+            orderedTokens(srcLabels, dstLabels, srcTokens, dstTokens);
+
+            // Inverted lists of the prefix tokens of the dst labels
+            TIntArrayList[] postings = new TIntArrayList[tokenCount(srcTokens, dstTokens)];
+            TIntArrayList emptyDst = new TIntArrayList();
+            for (int b = 0; b < dstLabels.length; b++) {
+                if (dstTokens[b].length == 0)
+                    emptyDst.add(b);
+                for (int k = 0; k < prefixLength(dstTokens[b].length, t); k++) {
+                    int token = dstTokens[b][k];
+                    if (postings[token] == null)
+                        postings[token] = new TIntArrayList();
+                    postings[token].add(b);
+                }
+            }
+
+            int[] stamps = new int[dstLabels.length];
+            Arrays.fill(stamps, -1);
+            for (int a = 0; a < srcLabels.length; a++) {
+                if (srcTokens[a].length == 0) {
+                    // Two empty labels are equal
+                    if (1F > threshold)
+                        for (int k = 0; k < emptyDst.size(); k++)
+                            labelPairs.add((long) a * dstLabels.length + emptyDst.get(k));
+                    continue;
+                }
+                for (int k = 0; k < prefixLength(srcTokens[a].length, t); k++) {
+                    TIntArrayList candidates = postings[srcTokens[a][k]];
+                    if (candidates == null)
+                        continue;
+                    for (int c = 0; c < candidates.size(); c++) {
+                        int b = candidates.get(c);
+                        if (stamps[b] == a)
+                            continue;
+                        stamps[b] = a;
+                        if (similarity(srcLabels[a], dstLabels[b]) > threshold)
+                            labelPairs.add((long) a * dstLabels.length + b);
+                    }
+                }
+            }
+        }
+
+        // Expand the pairs of labels to the pairs of positions holding them
+        int[][] srcPositions = positions(srcIds, srcLabels);
+        int[][] dstPositions = positions(dstIds, dstLabels);
+        TLongArrayList pairs = new TLongArrayList();
+        for (int p = 0; p < labelPairs.size(); p++) {
+            long labelPair = labelPairs.get(p);
+            int a = (int) (labelPair / dstLabels.length);
+            int b = (int) (labelPair % dstLabels.length);
+            for (int i: srcPositions[a])
+                for (int j: dstPositions[b])
+                    pairs.add((long) i * dstIds.length + j);
+        }
+        pairs.sort();
+        return pairs.toArray();
+    }
+
+    // Number of leading tokens of a set of the given size that any set above the threshold shares
+    private static int prefixLength(int size, double t) {
+        int minOverlap = (int) Math.ceil(t * size / (2D - t));
+        return Math.max(0, Math.min(size, size - minOverlap + 1));
+    }
+
+    private static int[] distinct(int[] ids) {
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++)
+            if (n == 0 || sorted[n - 1] != sorted[i])
+                sorted[n++] = sorted[i];
+        return Arrays.copyOf(sorted, n);
+    }
+
+    // Positions of each distinct label in ids, in increasing order
+    private static int[][] positions(int[] ids, int[] distinctIds) {
+        int[] counts = new int[distinctIds.length];
+        for (int id: ids)
+            counts[Arrays.binarySearch(distinctIds, id)]++;
+        int[][] positions = new int[distinctIds.length][];
+        for (int a = 0; a < distinctIds.length; a++)
+            positions[a] = new int[counts[a]];
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < ids.length; i++) {
+            int a = Arrays.binarySearch(distinctIds, ids[i]);
+            positions[a][counts[a]++] = i;
+        }
+        return positions;
+    }
+
+    /**
+     * Turns the profiles of the labels into sets of tokens, a token being a gram and its occurrence
+     * number, ranked by increasing frequency over both sides. Each set is sorted by rank.
+     */
+    private void orderedTokens(int[] srcLabels, int[] dstLabels, int[][] srcTokens, int[][] dstTokens) {
+        TLongIntHashMap tokenIds = new TLongIntHashMap();
+        TIntArrayList frequencies = new TIntArrayList();
+        tokenize(srcLabels, srcTokens, tokenIds, frequencies);
+        tokenize(dstLabels, dstTokens, tokenIds, frequencies);
+
+        Integer[] byFrequency = new Integer[frequencies.size()];
+        for (int k = 0; k < byFrequency.length; k++)
+            byFrequency[k] = k;
+        Arrays.sort(byFrequency, (k1, k2) -> {
+            int c = Integer.compare(frequencies.get(k1), frequencies.get(k2));
+            return c != 0 ? c : Integer.compare(k1, k2);
+        });
+        int[] ranks = new int[byFrequency.length];
+        for (int r = 0; r < byFrequency.length; r++)
+            ranks[byFrequency[r]] = r;
+
+        for (int[][] tokens: new int[][][] {srcTokens, dstTokens})
+            for (int[] set: tokens) {
+                for (int k = 0; k < set.length; k++)
+                    set[k] = ranks[set[k]];
+                Arrays.sort(set);
+            }
+    }
+
+    private void tokenize(int[] labelIds, int[][] tokens, TLongIntHashMap tokenIds, TIntArrayList frequencies) {
+        for (int a = 0; a < labelIds.length; a++) {
+            int[] profile = profiles.get(labelIds[a]);
+            int[] set = new int[profile.length];
+            for (int k = 0, occurrence = 0; k < profile.length; k++) {
+                occurrence = (k > 0 && profile[k] == profile[k - 1]) ? occurrence + 1 : 0;
+                long token = ((long) profile[k] << 32) | occurrence;
+                int tokenId;
+                if (tokenIds.containsKey(token))
+                    tokenId = tokenIds.get(token);
+                else {
+                    tokenId = frequencies.size();
+                    tokenIds.put(token, tokenId);
+                    frequencies.add(0);
+                }
+                frequencies.set(tokenId, frequencies.get(tokenId) + 1);
+                set[k] = tokenId;
+            }
+            tokens[a] = set;
+        }
+    }
+
+    private static int tokenCount(int[][] srcTokens, int[][] dstTokens) {
+        int max = -1;
+        for (int[][] tokens: new int[][][] {srcTokens, dstTokens})
+            for (int[] set: tokens)
+                for (int token: set)
+                    max = Math.max(max, token);
+        return max + 1;
+    }
+}
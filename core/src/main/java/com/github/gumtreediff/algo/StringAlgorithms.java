@@ -21,6 +21,7 @@
 package com.github.gumtreediff.algo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -28,34 +29,48 @@ import com.github.gumtreediff.tree.ITree;
 
 public final class StringAlgorithms {
 
+    /**
+     * Algorithm computing a longest common subsequence. All of them return a subsequence of the
+     * same, maximal, length, but they may break ties differently.
+     * <ul>
+     * <li>TABLE fills the full table of the lengths of the common subsequences of all the
+     * prefixes, in a quadratic time and space.</li>
+     * <li>HIRSCHBERG computes the subsequence by divide and conquer, keeping only two rows of the
+     * table at a time, in a quadratic time and a linear space.</li>
+     * <li>MYERS follows the furthest reaching paths of the edit graph, in a O((n + m) d) time for
+     * sequences d insertions and deletions apart, which is fast for near-identical sequences.
+     * It falls back to HIRSCHBERG when d is too large.</li>
+     * <li>AUTO uses TABLE when the table is small enough, and MYERS otherwise.</li>
+     * </ul>
+     */
+    public enum LcsAlgorithm { TABLE, HIRSCHBERG, MYERS, AUTO }
+
+    // Largest table filled by TABLE and AUTO, and largest sub-problem solved with a table by HIRSCHBERG
+    private static final long TABLE_CELLS = 1L << 22;
+
+    // Largest number of ints kept by MYERS to recover the subsequence
+    private static final long MYERS_CELLS = 1L << 22;
+
+    private interface Equality {
+        boolean equal(int i, int j);
+    }
+
     private StringAlgorithms() {}
 
     public static List<int[]> lcss(String s0, String s1) {
-        int[][] lengths = new int[s0.length() + 1][s1.length() + 1];
-        for (int i = 0; i < s0.length(); i++)
-            for (int j = 0; j < s1.length(); j++)
-                if (s0.charAt(i) == (s1.charAt(j)))
-                    lengths[i + 1][j + 1] = lengths[i][j] + 1;
-                else
-                    lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
-
-        List<int[]> indexes = new ArrayList<>();
+        return lcss(s0, s1, LcsAlgorithm.AUTO);
+    }
 
-        for (int x = s0.length(), y = s1.length(); x != 0 && y != 0; ) {
-            if (lengths[x][y] == lengths[x - 1][y]) x--;
-            else if (lengths[x][y] == lengths[x][y - 1]) y--;
-            else {
-                indexes.add(new int[] {x - 1, y - 1});
-                x--;
-                y--;
-            }
-        }
-        Collections.reverse(indexes);
-        return indexes;
+    public static List<int[]> lcss(String s0, String s1, LcsAlgorithm algorithm) {
+        return lcss(s0.length(), s1.length(), (i, j) -> s0.charAt(i) == s1.charAt(j), algorithm);
     }
 
     public static List<int[]> hunks(String s0, String s1) {
-        List<int[]> lcs = lcss(s0 ,s1);
+        return hunks(s0, s1, LcsAlgorithm.AUTO);
+    }
+
+    public static List<int[]> hunks(String s0, String s1, LcsAlgorithm algorithm) {
+        List<int[]> lcs = lcss(s0, s1, algorithm);
         List<int[]> hunks = new ArrayList<int[]>();
         int inf0 = -1;
         int inf1 = -1;
@@ -100,27 +115,189 @@ public final class StringAlgorithms {
     }
 
     public static List<int[]> lcss(List<ITree> s0, List<ITree> s1) {
-        int[][] lengths = new int[s0.size() + 1][s1.size() + 1];
-        for (int i = 0; i < s0.size(); i++)
-            for (int j = 0; j < s1.size(); j++)
-                if (s0.get(i).isSimilar(s1.get(j)))
+        return lcss(s0, s1, LcsAlgorithm.AUTO);
+    }
+
+    public static List<int[]> lcss(List<ITree> s0, List<ITree> s1, LcsAlgorithm algorithm) {
+        return lcss(s0.size(), s1.size(), (i, j) -> s0.get(i).isSimilar(s1.get(j)), algorithm);
+    }
+
+    /**
+     * Returns the pairs of indexes of a longest common subsequence of two sequences of lengths n
+     * and m, in increasing order.
+     */
+    private static List<int[]> lcss(int n, int m, Equality eq, LcsAlgorithm algorithm) {
+        List<int[]> indexes = new ArrayList<>();
+        if (algorithm == LcsAlgorithm.AUTO)
+            algorithm = (long) n * m <= TABLE_CELLS ? LcsAlgorithm.TABLE : LcsAlgorithm.MYERS;
+        switch (algorithm) {
+            case TABLE:
+                table(eq, 0, n, 0, m, indexes);
+                break;
+            case HIRSCHBERG:
+                hirschberg(eq, 0, n, 0, m, indexes);
+                break;
+            default:
+                if (!myers(eq, n, m, indexes))
+                    hirschberg(eq, 0, n, 0, m, indexes);
+        }
+        return indexes;
+    }
+
+    // Appends a longest common subsequence of [i0, i1[ and [j0, j1[ to indexes
+    private static void table(Equality eq, int i0, int i1, int j0, int j1, List<int[]> indexes) {
+        int n = i1 - i0;
+        int m = j1 - j0;
+        int[][] lengths = new int[n + 1][m + 1];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < m; j++)
+                if (eq.equal(i0 + i, j0 + j))
                     lengths[i + 1][j + 1] = lengths[i][j] + 1;
                 else
                     lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
 
-        List<int[]> indexes = new ArrayList<>();
-
-        for (int x = s0.size(), y = s1.size(); x != 0 && y != 0; ) {
+        int start = indexes.size();
+        for (int x = n, y = m; x != 0 && y != 0; ) {
             if (lengths[x][y] == lengths[x - 1][y]) x--;
             else if (lengths[x][y] == lengths[x][y - 1]) y--;
             else {
+                indexes.add(new int[] {i0 + x - 1, j0 + y - 1});
+                x--;
+                y--;
+            }
+        }
+        Collections.reverse(indexes.subList(start, indexes.size()));
+    }
+
+    private static void hirschberg(Equality eq, int i0, int i1, int j0, int j1, List<int[]> indexes) {
+        // Common prefix and suffix are part of a longest common subsequence
+        while (i0 < i1 && j0 < j1 && eq.equal(i0, j0))
+            indexes.add(new int[] {i0++, j0++});
+        int suffix = 0;
+        while (i0 < i1 - suffix && j0 < j1 - suffix && eq.equal(i1 - suffix - 1, j1 - suffix - 1))
+            suffix++;
+        i1 -= suffix;
+        j1 -= suffix;
+
+        if (i0 < i1 && j0 < j1) {
+            if (i1 - i0 == 1 || (long) (i1 - i0) * (j1 - j0) <= TABLE_CELLS)
+                table(eq, i0, i1, j0, j1, indexes);
+            else {
+                // Split the first sequence in two halves, and the second one where the lengths of
+                // the subsequences of the halves add up to the longest
+                int mid = (i0 + i1) >>> 1;
+                int[] forward = forwardLengths(eq, i0, mid, j0, j1);
+                int[] backward = backwardLengths(eq, mid, i1, j0, j1);
+                int split = 0;
+                for (int k = 1; k <= j1 - j0; k++)
+                    if (forward[k] + backward[k] > forward[split] + backward[split])
+                        split = k;
+                hirschberg(eq, i0, mid, j0, j0 + split, indexes);
+                hirschberg(eq, mid, i1, j0 + split, j1, indexes);
+            }
+        }
+
+        for (int k = 0; k < suffix; k++)
+            indexes.add(new int[] {i1 + k, j1 + k});
+    }
+
+    // Lengths of the longest common subsequences of [i0, i1[ and each [j0, j0 + k[
+    private static int[] forwardLengths(Equality eq, int i0, int i1, int j0, int j1) {
+        int m = j1 - j0;
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int i = i0; i < i1; i++) {
+            for (int k = 1; k <= m; k++)
+                cur[k] = eq.equal(i, j0 + k - 1) ? prev[k - 1] + 1 : Math.max(cur[k - 1], prev[k]);
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev;
+    }
+
+    // Lengths of the longest common subsequences of [i0, i1[ and each [j0 + k, j1[
+    private static int[] backwardLengths(Equality eq, int i0, int i1, int j0, int j1) {
+        int m = j1 - j0;
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int i = i1 - 1; i >= i0; i--) {
+            for (int k = m - 1; k >= 0; k--)
+                cur[k] = eq.equal(i, j0 + k) ? prev[k + 1] + 1 : Math.max(cur[k + 1], prev[k]);
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev;
+    }
+
+    /**
+     * Appends a longest common subsequence to indexes, found by following the furthest reaching
+     * paths of each number d of insertions and deletions, and returns true. Returns false without
+     * changing indexes if the paths needed to recover the subsequence do not fit in MYERS_CELLS.
+     */
+    private static boolean myers(Equality eq, int n, int m, List<int[]> indexes) {
+        int max = n + m;
+        // Furthest x reached on each diagonal k = x - y, at offset max
+        int[] v = new int[2 * max + 2];
+        List<int[]> trace = new ArrayList<>();
+        long kept = 0;
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1]))
+                    x = v[max + k + 1];
+                else
+                    x = v[max + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && eq.equal(x, y)) {
+                    x++;
+                    y++;
+                }
+                v[max + k] = x;
+                if (x >= n && y >= m) {
+                    myersPath(n, m, d, trace, indexes);
+                    return true;
+                }
+            }
+            kept += 2 * d + 1;
+            if (kept > MYERS_CELLS)
+                return false;
+            trace.add(Arrays.copyOfRange(v, max - d, max + d + 1));
+        }
+        return false;
+    }
+
+    private static void myersPath(int n, int m, int distance, List<int[]> trace, List<int[]> indexes) {
+        int start = indexes.size();
+        int x = n;
+        int y = m;
+        for (int d = distance; d > 0; d--) {
+            // Furthest x of the previous round on diagonal k, stored at index k + d - 1
+            int[] prev = trace.get(d - 1);
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1]))
+                prevK = k + 1;
+            else
+                prevK = k - 1;
+            int prevX = prev[prevK + d - 1];
+            int prevY = prevX - prevK;
+            int snakeX = prevK == k + 1 ? prevX : prevX + 1;
+            while (x > snakeX) {
                 indexes.add(new int[] {x - 1, y - 1});
                 x--;
                 y--;
             }
+            x = prevX;
+            y = prevY;
         }
-        Collections.reverse(indexes);
-        return indexes;
+        while (x > 0 && y > 0) {
+            indexes.add(new int[] {x - 1, y - 1});
+            x--;
+            y--;
+        }
+        Collections.reverse(indexes.subList(start, indexes.size()));
     }
 
 }
@@ -20,6 +20,7 @@
 
 package com.github.gumtreediff.io;
 
+import com.github.gumtreediff.actions.ActionSink;
 import com.github.gumtreediff.actions.model.*;
 import com.github.gumtreediff.io.TreeIoUtils.AbstractSerializer;
 import com.github.gumtreediff.matchers.Mapping;
@@ -88,7 +89,41 @@ public final class ActionsIoUtils {
 
         @Override
         public void writeTo(Writer writer) throws Exception {
-            ActionFormatter fmt = newFormatter(context, writer);
+            ActionWriter out = new ActionWriter(newFormatter(context, writer), mappings);
+            for (Action a : actions)
+                out.write(a);
+            out.finish();
+        }
+    }
+
+    /**
+     * Returns a sink writing the actions as text while they are generated (see
+     * {@link com.github.gumtreediff.actions.ActionGenerator#generate(ActionSink)}), the mappings
+     * being written first. The output is complete once {@link ActionWriter#finish()} is called.
+     */
+    public static ActionWriter textWriter(TreeContext sctx, MappingStore mappings, Writer writer) throws Exception {
+        return new ActionWriter(new TextFormatter(sctx, writer), mappings);
+    }
+
+    public static ActionWriter xmlWriter(TreeContext sctx, MappingStore mappings, Writer writer) throws Exception {
+        return new ActionWriter(new XmlFormatter(sctx, writer), mappings);
+    }
+
+    public static ActionWriter jsonWriter(TreeContext sctx, MappingStore mappings, Writer writer) throws Exception {
+        return new ActionWriter(new JsonFormatter(sctx, writer), mappings);
+    }
+
+    /**
+     * Sink writing each action it receives with a formatter. Since a sink cannot throw checked
+     * exceptions, the errors of the formatter are rethrown as runtime exceptions.
+     */
+    public static final class ActionWriter implements ActionSink {
+        private final ActionFormatter fmt;
+        private final MappingStore mappings;
+
+        ActionWriter(ActionFormatter fmt, MappingStore mappings) throws Exception {
+            this.fmt = fmt;
+            this.mappings = mappings;
             // Start the output
             fmt.startOutput();
 
@@ -99,26 +134,78 @@ public final class ActionsIoUtils {
             }
             fmt.endMatches();
 
-            // Write the actions
+            // The actions follow
             fmt.startActions();
-            for (Action a : actions) {
-                ITree src = a.getNode();
-                if (a instanceof Move) {
-                    ITree dst = mappings.getDstForSrc(src);
-                    fmt.moveAction(src, dst.getParent(), ((Move) a).getPosition());
-                } else if (a instanceof Update) {
-                    ITree dst = mappings.getDstForSrc(src);
-                    fmt.updateAction(src, dst);
-                } else if (a instanceof Insert) {
-                    ITree dst = a.getNode();
-                    if (dst.isRoot())
-                        fmt.insertRoot(src);
-                    else
-                        fmt.insertAction(src, dst.getParent(), dst.getParent().getChildPosition(dst));
-                } else if (a instanceof Delete) {
-                    fmt.deleteAction(src);
-                }
+        }
+
+        void write(Action a) throws Exception {
+            if (a instanceof Move)
+                writeMove(a.getNode(), ((Move) a).getPosition());
+            else if (a instanceof Update)
+                writeUpdate(a.getNode());
+            else if (a instanceof Insert)
+                writeInsert(a.getNode());
+            else if (a instanceof Delete)
+                fmt.deleteAction(a.getNode());
+        }
+
+        private void writeMove(ITree src, int position) throws Exception {
+            ITree dst = mappings.getDstForSrc(src);
+            fmt.moveAction(src, dst.getParent(), position);
+        }
+
+        private void writeUpdate(ITree src) throws Exception {
+            ITree dst = mappings.getDstForSrc(src);
+            fmt.updateAction(src, dst);
+        }
+
+        private void writeInsert(ITree dst) throws Exception {
+            if (dst.isRoot())
+                fmt.insertRoot(dst);
+            else
+                fmt.insertAction(dst, dst.getParent(), dst.getParent().getChildPosition(dst));
+        }
+
+        @Override
+        public void insert(ITree node, ITree parent, int position) {
+            try {
+                writeInsert(node);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void delete(ITree node) {
+            try {
+                fmt.deleteAction(node);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void update(ITree node, String value) {
+            try {
+                writeUpdate(node);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
             }
+        }
+
+        @Override
+        public void move(ITree node, ITree parent, int position) {
+            try {
+                writeMove(node, position);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Ends the output. The writer is not closed.
+         */
+        public void finish() throws Exception {
             fmt.endActions();
 
             // Finish up
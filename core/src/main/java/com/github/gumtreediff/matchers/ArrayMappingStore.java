@@ -0,0 +1,197 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeMap;
+
+/**
+ * A mapping store backed by two int arrays indexed by node id. It can only hold nodes
+ * of the two trees it has been created for, and requires these trees to be numbered
+ * (see {@link com.github.gumtreediff.tree.TreeContext#validate()}).
+ * Lookups do not box nor hash, iteration does not rebuild a set and copies are array copies.
+ */
+public class ArrayMappingStore extends MappingStore {
+
+    private static final int NONE = -1;
+
+    private final ITree[] srcTrees;
+
+    private final ITree[] dstTrees;
+
+    private final int[] srcToDst;
+
+    private final int[] dstToSrc;
+
+    private int size;
+
+    public ArrayMappingStore(ITree src, ITree dst) {
+        this.srcTrees = TreeMap.toArray(src);
+        this.dstTrees = TreeMap.toArray(dst);
+        this.srcToDst = new int[srcTrees.length];
+        this.dstToSrc = new int[dstTrees.length];
+        Arrays.fill(srcToDst, NONE);
+        Arrays.fill(dstToSrc, NONE);
+    }
+
+    private ArrayMappingStore(ArrayMappingStore other) {
+        this.srcTrees = other.srcTrees;
+        this.dstTrees = other.dstTrees;
+        this.srcToDst = new int[other.srcToDst.length];
+        this.dstToSrc = new int[other.dstToSrc.length];
+        System.arraycopy(other.srcToDst, 0, srcToDst, 0, srcToDst.length);
+        System.arraycopy(other.dstToSrc, 0, dstToSrc, 0, dstToSrc.length);
+        this.size = other.size;
+    }
+
+    private static int indexOf(ITree[] trees, ITree t) {
+        if (t == null)
+            return NONE;
+        int id = t.getId();
+        if (id >= 0 && id < trees.length && trees[id] == t)
+            return id;
+        return NONE;
+    }
+
+    private static int checkedIndexOf(ITree[] trees, ITree t) {
+        int id = indexOf(trees, t);
+        if (id == NONE)
+            throw new IllegalArgumentException("Node does not belong to the trees of this store");
+        return id;
+    }
+
+    @Override
+    public Set<Mapping> asSet() {
+        Set<Mapping> mappings = new HashSet<>();
+        for (Mapping m: this)
+            mappings.add(m);
+        return mappings;
+    }
+
+    @Override
+    public MappingStore copy() {
+        return new ArrayMappingStore(this);
+    }
+
+    @Override
+    public void link(ITree src, ITree dst) {
+        int s = checkedIndexOf(srcTrees, src);
+        int d = checkedIndexOf(dstTrees, dst);
+        if (srcToDst[s] == NONE)
+            size++;
+        srcToDst[s] = d;
+        dstToSrc[d] = s;
+    }
+
+    @Override
+    public void unlink(ITree src, ITree dst) {
+        int s = indexOf(srcTrees, src);
+        int d = indexOf(dstTrees, dst);
+        if (s != NONE && srcToDst[s] != NONE) {
+            srcToDst[s] = NONE;
+            size--;
+        }
+        if (d != NONE)
+            dstToSrc[d] = NONE;
+    }
+
+    @Override
+    public ITree getDstForSrc(ITree src) {
+        int s = indexOf(srcTrees, src);
+        if (s == NONE || srcToDst[s] == NONE)
+            return null;
+        return dstTrees[srcToDst[s]];
+    }
+
+    @Override
+    public ITree getSrcForDst(ITree dst) {
+        int d = indexOf(dstTrees, dst);
+        if (d == NONE || dstToSrc[d] == NONE)
+            return null;
+        return srcTrees[dstToSrc[d]];
+    }
+
+    @Override
+    public boolean hasSrc(ITree src) {
+        int s = indexOf(srcTrees, src);
+        return s != NONE && srcToDst[s] != NONE;
+    }
+
+    @Override
+    public boolean hasDst(ITree dst) {
+        int d = indexOf(dstTrees, dst);
+        return d != NONE && dstToSrc[d] != NONE;
+    }
+
+    @Override
+    public boolean has(ITree src, ITree dst) {
+        return getDstForSrc(src) == dst;
+    }
+
+    @Override
+    public Iterator<Mapping> iterator() {
+        return new Iterator<Mapping>() {
+            int next = advance(0);
+
+            private int advance(int from) {
+                while (from < srcToDst.length && srcToDst[from] == NONE)
+                    from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < srcToDst.length;
+            }
+
+            @Override
+            public Mapping next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Mapping m = new Mapping(srcTrees[next], dstTrees[srcToDst[next]]);
+                next = advance(next + 1);
+                return m;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("[");
+        for (Mapping m: this) {
+            if (b.length() > 1)
+                b.append(", ");
+            b.append(m);
+        }
+        return b.append("]").toString();
+    }
+}
@@ -20,7 +20,11 @@
 
 package com.github.gumtreediff.matchers;
 
+import com.github.gumtreediff.algo.LabelSimilarity;
+import com.github.gumtreediff.tree.CompactTree;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.IntervalIndex;
+import com.github.gumtreediff.tree.LabelDictionary;
 
 import java.util.HashSet;
 import java.util.List;
@@ -37,12 +41,33 @@ public abstract class Matcher {
 
     protected final MappingStore mappings;
 
+    private IntervalIndex srcIndex;
+
+    private IntervalIndex dstIndex;
+
+    private CompactTree srcCompactTree;
+
+    private CompactTree dstCompactTree;
+
+    private LabelDictionary labelDictionary;
+
+    private LabelSimilarity labelSimilarity;
+
     public Matcher(ITree src, ITree dst, MappingStore store) {
         this.src = src;
         this.dst = dst;
         this.mappings = store;
     }
 
+    /**
+     * Creates a matcher comparing labels with the given similarity, typically the one of a matcher
+     * working on the trees that contain src and dst.
+     */
+    protected Matcher(ITree src, ITree dst, MappingStore store, LabelSimilarity labelSimilarity) {
+        this(src, dst, store);
+        this.labelSimilarity = labelSimilarity;
+    }
+
     public abstract void match();
 
     public MappingStore getMappings() {
@@ -78,22 +103,43 @@ public abstract class Matcher {
     }
 
     protected double chawatheSimilarity(ITree src, ITree dst) {
-        int max = Math.max(src.getDescendants().size(), dst.getDescendants().size());
+        int max = Math.max(numberOfDescendants(getSrcIndex(), src), numberOfDescendants(getDstIndex(), dst));
         return (double) numberOfCommonDescendants(src, dst) / (double) max;
     }
 
     protected double diceSimilarity(ITree src, ITree dst) {
         double c = (double) numberOfCommonDescendants(src, dst);
-        return (2D * c) / ((double) src.getDescendants().size() + (double) dst.getDescendants().size());
+        return (2D * c) / ((double) numberOfDescendants(getSrcIndex(), src)
+                + (double) numberOfDescendants(getDstIndex(), dst));
     }
 
     protected double jaccardSimilarity(ITree src, ITree dst) {
         double num = (double) numberOfCommonDescendants(src, dst);
-        double den = (double) src.getDescendants().size() + (double) dst.getDescendants().size() - num;
+        double den = (double) numberOfDescendants(getSrcIndex(), src)
+                + (double) numberOfDescendants(getDstIndex(), dst) - num;
         return num / den;
     }
 
     protected int numberOfCommonDescendants(ITree src, ITree dst) {
+        IntervalIndex srcIdx = getSrcIndex();
+        IntervalIndex dstIdx = getDstIndex();
+        int s = srcIdx.getRank(src);
+        int d = dstIdx.getRank(dst);
+        if (s == -1 || d == -1)
+            return numberOfCommonDescendantsUnindexed(src, dst);
+
+        int common = 0;
+        int end = s + srcIdx.getSubtreeSize(s);
+        for (int r = s + 1; r < end; r++) {
+            ITree m = mappings.getDstForSrc(srcIdx.getTree(r));
+            if (m != null && dstIdx.isDescendant(d, dstIdx.getRank(m)))
+                common++;
+        }
+
+        return common;
+    }
+
+    private int numberOfCommonDescendantsUnindexed(ITree src, ITree dst) {
         Set<ITree> dstDescs = new HashSet<>(dst.getDescendants());
         int common = 0;
 
@@ -106,6 +152,61 @@ public abstract class Matcher {
         return common;
     }
 
+    private static int numberOfDescendants(IntervalIndex index, ITree t) {
+        int r = index.getRank(t);
+        return r == -1 ? t.getDescendants().size() : index.getSubtreeSize(r) - 1;
+    }
+
+    /**
+     * Returns the interval index of the source tree, built on first use. The trees must not be
+     * modified once matching has started.
+     */
+    protected IntervalIndex getSrcIndex() {
+        if (srcIndex == null)
+            srcIndex = new IntervalIndex(src);
+        return srcIndex;
+    }
+
+    protected IntervalIndex getDstIndex() {
+        if (dstIndex == null)
+            dstIndex = new IntervalIndex(dst);
+        return dstIndex;
+    }
+
+    /**
+     * Returns the compact view of the source tree, built on first use. The source and destination views
+     * share their label ids, which are the ones of the trees' contexts when they share a label dictionary.
+     * The trees must not be modified once matching has started.
+     */
+    protected CompactTree getSrcCompactTree() {
+        if (srcCompactTree == null)
+            srcCompactTree = new CompactTree(src, getLabelDictionary());
+        return srcCompactTree;
+    }
+
+    protected CompactTree getDstCompactTree() {
+        if (dstCompactTree == null)
+            dstCompactTree = new CompactTree(dst, getLabelDictionary());
+        return dstCompactTree;
+    }
+
+    private LabelDictionary getLabelDictionary() {
+        if (labelDictionary == null)
+            labelDictionary = LabelDictionary.shared(src, dst);
+        return labelDictionary;
+    }
+
+    /**
+     * Returns the label similarity of the matcher, built on first use on the label dictionary of the
+     * compact views unless one was given. It can be handed to the matchers run on subtrees, which then
+     * share its profiles.
+     */
+    protected LabelSimilarity getLabelSimilarity() {
+        if (labelSimilarity == null)
+            labelSimilarity = new LabelSimilarity(getLabelDictionary());
+        return labelSimilarity;
+    }
+
     protected void clean() {
         for (ITree t : src.getTrees())
             if (!mappings.hasSrc(t))
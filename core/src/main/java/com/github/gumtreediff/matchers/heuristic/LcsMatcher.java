@@ -21,6 +21,7 @@
 package com.github.gumtreediff.matchers.heuristic;
 
 import com.github.gumtreediff.algo.StringAlgorithms;
+import com.github.gumtreediff.algo.StringAlgorithms.LcsAlgorithm;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.Register;
@@ -32,16 +33,37 @@ import java.util.List;
 @Register(id = "lcs")
 public class LcsMatcher extends Matcher {
 
+    private static LcsAlgorithm ALGORITHM;
+
+    static {
+        try {
+            ALGORITHM = LcsAlgorithm.valueOf(System.getProperty("gumtree.match.lcs.algorithm", "auto").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            ALGORITHM = LcsAlgorithm.AUTO;
+        }
+    }
+
+    private final LcsAlgorithm algorithm;
+
     public LcsMatcher(ITree src, ITree dst, MappingStore store) {
+        this(src, dst, store, ALGORITHM);
+    }
+
+    /**
+     * Creates a matcher computing the longest common subsequence of the pre-order sequences of
+     * the trees with the given algorithm. The table of TABLE does not fit in memory for large
+     * trees, AUTO (the default, see gumtree.match.lcs.algorithm) switches to MYERS for them.
+     */
+    public LcsMatcher(ITree src, ITree dst, MappingStore store, LcsAlgorithm algorithm) {
         super(src, dst, store);
+        this.algorithm = algorithm;
     }
 
     @Override
     public void match() {
         List<ITree> srcSeq = TreeUtils.preOrder(src);
         List<ITree> dstSeq = TreeUtils.preOrder(dst);
-        List<int[]> lcs = StringAlgorithms.lcss(srcSeq, dstSeq);
-        System.out.println(lcs.size());
+        List<int[]> lcs = StringAlgorithms.lcss(srcSeq, dstSeq, algorithm);
         for (int[] x: lcs) {
 
             ITree t1 = srcSeq.get(x[0]);
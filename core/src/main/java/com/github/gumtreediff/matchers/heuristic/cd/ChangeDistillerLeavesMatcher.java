@@ -20,12 +20,12 @@
 
 package com.github.gumtreediff.matchers.heuristic.cd;
 
+import com.github.gumtreediff.algo.LabelSimilarity;
 import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.tree.TreeUtils;
-import org.simmetrics.StringMetrics;
 
 import java.util.*;
 
@@ -37,28 +37,33 @@ public class ChangeDistillerLeavesMatcher extends Matcher {
         super(src, dst, store);
     }
 
+    public ChangeDistillerLeavesMatcher(ITree src, ITree dst, MappingStore store, LabelSimilarity labelSim) {
+        super(src, dst, store, labelSim);
+    }
+
     @Override
     public void match() {
+        List<ITree> srcLeaves = retainLeaves(TreeUtils.postOrder(src));
         List<ITree> dstLeaves = retainLeaves(TreeUtils.postOrder(dst));
 
-        List<Mapping> leafMappings = new LinkedList<>();
-
-        for (Iterator<ITree> srcLeaves = TreeUtils.leafIterator(
-                TreeUtils.postOrderIterator(src)); srcLeaves.hasNext();) {
-            for (ITree dstLeaf: dstLeaves) {
-                ITree srcLeaf = srcLeaves.next();
-                if (srcLeaf.isMatchable(dstLeaf)) {
-                    double sim = StringMetrics.qGramsDistance().compare(srcLeaf.getLabel(), dstLeaf.getLabel());
-                    if (sim > LABEL_SIM_THRESHOLD) leafMappings.add(new Mapping(srcLeaf, dstLeaf));
-                }
-            }
+        // Only the pairs of leaves whose labels can be similar enough are enumerated
+        LabelSimilarity labelSim = getLabelSimilarity();
+        int[] srcLabels = labelSim.getLabelIds(srcLeaves);
+        int[] dstLabels = labelSim.getLabelIds(dstLeaves);
+        List<LeafMapping> leafMappings = new ArrayList<>();
+        for (long pair: labelSim.similarPairs(srcLabels, dstLabels, LABEL_SIM_THRESHOLD)) {
+            int i = (int) (pair / dstLeaves.size());
+            int j = (int) (pair % dstLeaves.size());
+            ITree srcLeaf = srcLeaves.get(i);
+            ITree dstLeaf = dstLeaves.get(j);
+            if (srcLeaf.isMatchable(dstLeaf))
+                leafMappings.add(new LeafMapping(srcLeaf, dstLeaf, labelSim.similarity(srcLabels[i], dstLabels[j])));
         }
 
         Set<ITree> srcIgnored = new HashSet<>();
         Set<ITree> dstIgnored = new HashSet<>();
         Collections.sort(leafMappings, new LeafMappingComparator());
-        while (leafMappings.size() > 0) {
-            Mapping best = leafMappings.remove(0);
+        for (LeafMapping best: leafMappings) {
             if (!(srcIgnored.contains(best.getFirst()) || dstIgnored.contains(best.getSecond()))) {
                 addMapping(best.getFirst(),best.getSecond());
                 srcIgnored.add(best.getFirst());
@@ -76,16 +81,21 @@ public class ChangeDistillerLeavesMatcher extends Matcher {
         return trees;
     }
 
-    private class LeafMappingComparator implements Comparator<Mapping> {
+    private static class LeafMapping extends Mapping {
 
-        @Override
-        public int compare(Mapping m1, Mapping m2) {
-            return Double.compare(sim(m1), sim(m2));
+        private final double sim;
+
+        LeafMapping(ITree src, ITree dst, double sim) {
+            super(src, dst);
+            this.sim = sim;
         }
+    }
 
-        public double sim(Mapping m) {
+    private static class LeafMappingComparator implements Comparator<LeafMapping> {
 
-            return StringMetrics.qGramsDistance().compare(m.getFirst().getLabel(), m.getSecond().getLabel());
+        @Override
+        public int compare(LeafMapping m1, LeafMapping m2) {
+            return Double.compare(m1.sim, m2.sim);
         }
 
     }
@@ -18,6 +18,14 @@ abstract class AbstractHistogramMatcher extends Matcher {
 
     protected static double SIM_THRESHOLD;
 
+    // Fingerprint buckets with more candidate pairs than this only keep the `BUCKET_TOP_K` best candidates of
+    // each node (by parent group for content buckets), instead of scoring and sorting every pair
+    private static long BUCKET_PAIR_LIMIT = 10000;
+    private static int BUCKET_TOP_K = 16;
+
+    // Last chance matching gives up on the remainders whose edit distance exceeds this fraction of their
+    // total size; 1 never gives up, since deleting and inserting every node is always possible
+    private static double TED_BUDGET = 1.0;
 
 
     static {
@@ -27,6 +35,24 @@ abstract class AbstractHistogramMatcher extends Matcher {
         } catch (NumberFormatException e) {
             SIM_THRESHOLD = 0.3;
         }
+
+        try {
+            BUCKET_PAIR_LIMIT = Long.parseLong(System.getProperty("gumtree.match.fg.bucket_pairs", "10000"));
+        } catch (NumberFormatException e) {
+            BUCKET_PAIR_LIMIT = 10000;
+        }
+
+        try {
+            BUCKET_TOP_K = Integer.parseInt(System.getProperty("gumtree.match.fg.bucket_topk", "16"));
+        } catch (NumberFormatException e) {
+            BUCKET_TOP_K = 16;
+        }
+
+        try {
+            TED_BUDGET = Double.parseDouble(System.getProperty("gumtree.match.fg.ted_budget", "1.0"));
+        } catch (NumberFormatException e) {
+            TED_BUDGET = 1.0;
+        }
     }
 
 
@@ -89,6 +115,22 @@ abstract class AbstractHistogramMatcher extends Matcher {
                     pair.nodesB.get(0).matched = true;
                     addFullMapping(pair.nodesA.get(0).node, pair.nodesB.get(0).node);
                 }
+                else if ((long)pair.nodesA.size() * pair.nodesB.size() > BUCKET_PAIR_LIMIT) {
+                    // Large bucket: match by parent groups
+                    matchByParentGroups(pair.nodesA, pair.nodesB);
+
+                    // Put children of unmatched nodes back in the queue
+                    for (FGPNode a: pair.nodesA) {
+                        if (!a.matched) {
+                            nodesByShapeFg.putInA(a.getShapeFingerprintIndex(), a);
+                        }
+                    }
+                    for (FGPNode b: pair.nodesB) {
+                        if (!b.matched) {
+                            nodesByShapeFg.putInB(b.getShapeFingerprintIndex(), b);
+                        }
+                    }
+                }
                 else if (pair.nodesA.size() > 0 && pair.nodesB.size() > 0) {
                     // Match nodes from `pair.nodesA` with nodes from `pair.nodesB`
 
@@ -146,11 +188,17 @@ abstract class AbstractHistogramMatcher extends Matcher {
                 else if (pair.nodesA.size() > 0 && pair.nodesB.size() > 0) {
                     // Match nodes from `pair.nodesA` with nodes from `pair.nodesB`
 
-                    // Rank matches by score
-                    ArrayList<ScoredMatch> scoredMatches = new ArrayList<>();
-                    for (FGPNode a: pair.nodesA) {
-                        for (FGPNode b: pair.nodesB) {
-                            scoredMatches.add(new ScoredMatch(NodeHistogramTable.scoreMatchContext(a, b), a, b));
+                    // Rank matches by score; large buckets only keep the best candidates of each node
+                    ArrayList<ScoredMatch> scoredMatches;
+                    if ((long)pair.nodesA.size() * pair.nodesB.size() > BUCKET_PAIR_LIMIT) {
+                        scoredMatches = bestContextMatches(pair.nodesA, pair.nodesB);
+                    }
+                    else {
+                        scoredMatches = new ArrayList<>();
+                        for (FGPNode a: pair.nodesA) {
+                            for (FGPNode b: pair.nodesB) {
+                                scoredMatches.add(new ScoredMatch(NodeHistogramTable.scoreMatchContext(a, b), a, b));
+                            }
                         }
                     }
                     scoredMatches.sort(new ScoreMatchComparator());
@@ -188,6 +236,196 @@ abstract class AbstractHistogramMatcher extends Matcher {
         }
     }
 
+    /**
+     * Match the nodes of a large content fingerprint bucket.
+     *
+     * The score of a pair in a content bucket only depends on the parents of its nodes, so nodes are grouped
+     * by parent and groups are matched instead of nodes. Candidate groups of `nodesB` come from an inverted
+     * index over the features of their parents, so groups whose parents share no feature are never scored.
+     * For each group of `nodesA` the candidates are visited in order of decreasing upper bound and scoring
+     * stops once the upper bound cannot beat the `BUCKET_TOP_K`th best score found so far. The retained group
+     * pairs are then matched in order of decreasing score, pairing the unmatched nodes of both groups in order.
+     * Nodes left unmatched are handled by the shape fingerprint pass, as for smaller buckets.
+     */
+    private void matchByParentGroups(ArrayList<FGPNode> nodesA, ArrayList<FGPNode> nodesB) {
+        ParentGroups groupsA = new ParentGroups(nodesA);
+        ParentGroups groupsB = new ParentGroups(nodesB);
+        ArrayList<NodeHistogram> parentFeaturesB = new ArrayList<>();
+        for (FGPNode parent: groupsB.parents) {
+            parentFeaturesB.add(parent.nodeFeatures);
+        }
+        HistogramInvertedIndex indexB = new HistogramInvertedIndex(parentFeaturesB);
+
+        ArrayList<ScoredGroupMatch> groupMatches = new ArrayList<>();
+        ArrayList<ScoredGroupMatch> candidates = new ArrayList<>();
+        PriorityQueue<ScoredGroupMatch> best = new PriorityQueue<>(new ScoredGroupMatchComparator().reversed());
+        for (int groupA = 0; groupA < groupsA.parents.size(); groupA++) {
+            FGPNode parentA = groupsA.parents.get(groupA);
+
+            candidates.clear();
+            int nCandidates = indexB.query(parentA.nodeFeatures, 0.0);
+            for (int i = 0; i < nCandidates; i++) {
+                FGPNode parentB = groupsB.parents.get(indexB.candidate(i));
+                double upperBound = indexB.similarity(i) +
+                        NodeHistogramTable.scoreMatchContextUpperBound(parentA, parentB);
+                candidates.add(new ScoredGroupMatch(upperBound, groupA, indexB.candidate(i)));
+            }
+            candidates.sort(new ScoredGroupMatchComparator());
+
+            best.clear();
+            for (ScoredGroupMatch candidate: candidates) {
+                if (best.size() >= BUCKET_TOP_K &&
+                        candidate.score + HistogramInvertedIndex.TOLERANCE < best.peek().score) {
+                    break;
+                }
+                double score = NodeHistogramTable.scoreMatch(parentA, groupsB.parents.get(candidate.groupB),
+                        null, null, null);
+                best.add(new ScoredGroupMatch(score, groupA, candidate.groupB));
+                if (best.size() > BUCKET_TOP_K) {
+                    best.poll();
+                }
+            }
+            int start = groupMatches.size();
+            groupMatches.addAll(best);
+            groupMatches.subList(start, groupMatches.size()).sort(new ScoredGroupMatchComparator());
+        }
+        groupMatches.sort(new ScoredGroupMatchComparator());
+
+        // Nodes within a group are only matched here, in order, so the first unmatched node of each group
+        // is at its cursor
+        int cursorsA[] = new int[groupsA.parents.size()];
+        int cursorsB[] = new int[groupsB.parents.size()];
+        for (ScoredGroupMatch groupMatch: groupMatches) {
+            ArrayList<FGPNode> membersA = groupsA.members.get(groupMatch.groupA);
+            ArrayList<FGPNode> membersB = groupsB.members.get(groupMatch.groupB);
+            while (cursorsA[groupMatch.groupA] < membersA.size() && cursorsB[groupMatch.groupB] < membersB.size()) {
+                FGPNode a = membersA.get(cursorsA[groupMatch.groupA]++);
+                FGPNode b = membersB.get(cursorsB[groupMatch.groupB]++);
+                a.matched = b.matched = true;
+                addFullMapping(a.node, b.node);
+            }
+        }
+    }
+
+    /**
+     * Rank the candidate pairs of a large shape fingerprint bucket by context score.
+     *
+     * The context score of a pair is dominated by the similarity of the sibling features of its nodes, so the
+     * candidates of each node of `nodesA` come from inverted indices over the left and right sibling features
+     * of `nodesB`, along with the `BUCKET_TOP_K` nodes on either side of it in left tree weight, so that nodes
+     * without siblings still get candidates. As in `matchByParentGroups`, the candidates of a node are scored in
+     * order of decreasing upper bound until the bound cannot beat the `BUCKET_TOP_K`th best score, and only the
+     * best `BUCKET_TOP_K` pairs of each node are returned, in the order of the exhaustive ranking. Nodes left
+     * unmatched are opened, as in smaller buckets.
+     */
+    private ArrayList<ScoredMatch> bestContextMatches(ArrayList<FGPNode> nodesA, ArrayList<FGPNode> nodesB) {
+        int nB = nodesB.size();
+        ArrayList<NodeHistogram> leftFeaturesB = new ArrayList<>();
+        ArrayList<NodeHistogram> rightFeaturesB = new ArrayList<>();
+        for (FGPNode b: nodesB) {
+            leftFeaturesB.add(b.leftSiblingsFeats);
+            rightFeaturesB.add(b.getRightSiblingsFeats());
+        }
+        HistogramInvertedIndex leftIndexB = new HistogramInvertedIndex(leftFeaturesB);
+        HistogramInvertedIndex rightIndexB = new HistogramInvertedIndex(rightFeaturesB);
+
+        // Positions in `nodesB` by increasing left tree weight
+        Integer byLeftTree[] = new Integer[nB];
+        for (int i = 0; i < nB; i++) {
+            byLeftTree[i] = i;
+        }
+        Arrays.sort(byLeftTree, Comparator.comparingDouble(i -> nodesB.get(i).leftTree));
+        double leftTrees[] = new double[nB];
+        for (int i = 0; i < nB; i++) {
+            leftTrees[i] = nodesB.get(byLeftTree[i]).leftTree;
+        }
+
+        // Weighted sibling similarity of each candidate of the current node; `stamps` avoids clearing it
+        double siblingScores[] = new double[nB];
+        int stamps[] = new int[nB];
+        int touched[] = new int[nB];
+
+        ArrayList<ScoredMatch> scoredMatches = new ArrayList<>();
+        // Pairs of positions in `nodesA` and `nodesB`
+        ArrayList<ScoredGroupMatch> candidates = new ArrayList<>();
+        PriorityQueue<ScoredGroupMatch> best = new PriorityQueue<>(new ScoredGroupMatchComparator().reversed());
+        ArrayList<ScoredGroupMatch> kept = new ArrayList<>();
+        for (int i = 0; i < nodesA.size(); i++) {
+            FGPNode a = nodesA.get(i);
+            int stamp = i + 1;
+            int nTouched = 0;
+
+            int nLeft = leftIndexB.query(a.leftSiblingsFeats, 0.0);
+            for (int c = 0; c < nLeft; c++) {
+                int p = leftIndexB.candidate(c);
+                if (stamps[p] != stamp) {
+                    stamps[p] = stamp;
+                    siblingScores[p] = 0.0;
+                    touched[nTouched++] = p;
+                }
+                siblingScores[p] += leftIndexB.similarity(c) * 0.05;
+            }
+            int nRight = rightIndexB.query(a.getRightSiblingsFeats(), 0.0);
+            for (int c = 0; c < nRight; c++) {
+                int p = rightIndexB.candidate(c);
+                if (stamps[p] != stamp) {
+                    stamps[p] = stamp;
+                    siblingScores[p] = 0.0;
+                    touched[nTouched++] = p;
+                }
+                siblingScores[p] += rightIndexB.similarity(c) * 0.05;
+            }
+            int at = Arrays.binarySearch(leftTrees, a.leftTree);
+            at = at < 0 ? -(at + 1) : at;
+            for (int k = Math.max(0, at - BUCKET_TOP_K); k < Math.min(nB, at + BUCKET_TOP_K); k++) {
+                int p = byLeftTree[k];
+                if (stamps[p] != stamp) {
+                    stamps[p] = stamp;
+                    siblingScores[p] = 0.0;
+                    touched[nTouched++] = p;
+                }
+            }
+
+            candidates.clear();
+            for (int t = 0; t < nTouched; t++) {
+                int p = touched[t];
+                double upperBound = siblingScores[p] + NodeHistogramTable.scoreMatchPosition(a, nodesB.get(p));
+                candidates.add(new ScoredGroupMatch(upperBound, i, p));
+            }
+            candidates.sort(new ScoredGroupMatchComparator());
+
+            best.clear();
+            for (ScoredGroupMatch candidate: candidates) {
+                if (best.size() >= BUCKET_TOP_K &&
+                        candidate.score + HistogramInvertedIndex.TOLERANCE < best.peek().score) {
+                    break;
+                }
+                double score = NodeHistogramTable.scoreMatchContext(a, nodesB.get(candidate.groupB));
+                best.add(new ScoredGroupMatch(score, i, candidate.groupB));
+                if (best.size() > BUCKET_TOP_K) {
+                    best.poll();
+                }
+            }
+
+            // Same order as the exhaustive ranking for equal scores: by position in `nodesB`
+            kept.clear();
+            kept.addAll(best);
+            kept.sort(Comparator.comparingInt(m -> m.groupB));
+            for (ScoredGroupMatch m: kept) {
+                scoredMatches.add(new ScoredMatch(m.score, a, nodesB.get(m.groupB)));
+            }
+        }
+        return scoredMatches;
+    }
+
+    protected static ArrayList<NodeHistogram> nodeFeatures(ArrayList<FGPNode> nodes) {
+        ArrayList<NodeHistogram> features = new ArrayList<>();
+        for (FGPNode node: nodes) {
+            features.add(node.nodeFeatures);
+        }
+        return features;
+    }
+
     protected ArrayList<FGPNode> nodesInUnmatchedSubtrees(FGPNode tree, int minHeight) {
         ArrayList<FGPNode> nodes = new ArrayList<>();
         ArrayDeque<FGPNode> queue = new ArrayDeque<>();
@@ -209,7 +447,8 @@ abstract class AbstractHistogramMatcher extends Matcher {
         TreeUtils.removeMatched(cDst);
 
         if (cSrc.getSize() * cDst.getSize() < SIZE_THRESHOLD) {
-            Matcher m = new ZsMatcher(cSrc, cDst, new MappingStore());
+            Matcher m = new ZsMatcher(cSrc, cDst, new MappingStore(),
+                    TED_BUDGET * (cSrc.getSize() + cDst.getSize()), getLabelSimilarity());
             m.match();
             for (Mapping candidate: m.getMappings()) {
                 FGPNode fgpLeft = matchHelper.mappingA.getByID(candidate.getFirst().getId());
@@ -269,6 +508,54 @@ abstract class AbstractHistogramMatcher extends Matcher {
         }
     }
 
+    private static class ParentGroups {
+        private ArrayList<FGPNode> parents = new ArrayList<>();
+        private ArrayList<ArrayList<FGPNode>> members = new ArrayList<>();
+
+        private ParentGroups(ArrayList<FGPNode> nodes) {
+            IdentityHashMap<FGPNode, Integer> groupsByParent = new IdentityHashMap<>();
+            for (FGPNode node: nodes) {
+                Integer group = groupsByParent.get(node.parent);
+                if (group == null) {
+                    group = parents.size();
+                    groupsByParent.put(node.parent, group);
+                    parents.add(node.parent);
+                    members.add(new ArrayList<>());
+                }
+                members.get(group).add(node);
+            }
+        }
+    }
+
+    private static class ScoredGroupMatch {
+        private double score;
+        private int groupA, groupB;
+
+        private ScoredGroupMatch(double score, int groupA, int groupB) {
+            this.score = score;
+            this.groupA = groupA;
+            this.groupB = groupB;
+        }
+    }
+
+    /**
+     * Orders group matches by decreasing score, then by group A and group B.
+     */
+    private static class ScoredGroupMatchComparator implements Comparator<ScoredGroupMatch> {
+
+        @Override
+        public int compare(ScoredGroupMatch o1, ScoredGroupMatch o2) {
+            int c = -Double.compare(o1.score, o2.score);
+            if (c == 0) {
+                c = Integer.compare(o1.groupA, o2.groupA);
+            }
+            if (c == 0) {
+                c = Integer.compare(o1.groupB, o2.groupB);
+            }
+            return c;
+        }
+    }
+
     protected static class ScoredMatch implements Comparable<ScoredMatch> {
         protected double score;
         protected FGPNode a, b;
@@ -148,12 +148,30 @@ public class AncestryCtxHistogramMatcher extends AbstractHistogramMatcher {
 
         // Gather all matches whose upper bound is less than the threshold
         ArrayList<ScoredMatch> matchesByUpperBound = new ArrayList<>();
-        for (FGPNode a: nodesA) {
-            for (FGPNode b: nodesB) {
-                double localSimUpperBound = matchTable.localSimilarityUpperBound(a, b);
-                if (localSimUpperBound > LOCAL_SIM_THRESHOLD) {
-                    double ctxSimUpperBound = matchTable.inContextSimilarityUpperBound(a, b);
-                    matchesByUpperBound.add(new ScoredMatch(ctxSimUpperBound, a, b));
+        if (LOCAL_SIM_THRESHOLD > 0.0) {
+            // Pairs whose local similarity is below the threshold are discarded when they leave the upper bound
+            // heap, so only visit the candidates reported by an inverted index over the node features
+            HistogramInvertedIndex indexB = new HistogramInvertedIndex(nodeFeatures(nodesB));
+            for (FGPNode a: nodesA) {
+                int nCandidates = indexB.query(a.nodeFeatures, LOCAL_SIM_THRESHOLD);
+                for (int i = 0; i < nCandidates; i++) {
+                    FGPNode b = nodesB.get(indexB.candidate(i));
+                    double localSimUpperBound = matchTable.localSimilarityUpperBound(a, b);
+                    if (localSimUpperBound > LOCAL_SIM_THRESHOLD) {
+                        double ctxSimUpperBound = matchTable.inContextSimilarityUpperBound(a, b);
+                        matchesByUpperBound.add(new ScoredMatch(ctxSimUpperBound, a, b));
+                    }
+                }
+            }
+        }
+        else {
+            for (FGPNode a: nodesA) {
+                for (FGPNode b: nodesB) {
+                    double localSimUpperBound = matchTable.localSimilarityUpperBound(a, b);
+                    if (localSimUpperBound > LOCAL_SIM_THRESHOLD) {
+                        double ctxSimUpperBound = matchTable.inContextSimilarityUpperBound(a, b);
+                        matchesByUpperBound.add(new ScoredMatch(ctxSimUpperBound, a, b));
+                    }
                 }
             }
         }
@@ -1,20 +1,28 @@
 package com.github.gumtreediff.matchers.heuristic.fgp;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Created by Geoff on 24/05/2016.
  */
 public class AncestryMatchScoreCache {
+    private static long MAX_BYTES;
+
+    static {
+        try {
+            MAX_BYTES = Long.parseLong(System.getProperty("gumtree.match.fg.score_cache_mb", "256")) << 20;
+        } catch (NumberFormatException e) {
+            MAX_BYTES = 256L << 20;
+        }
+    }
+
     private final int SIMTYPE_JACCARD = 0;
     private final int SIMTYPE_UPPERBOUND = 1;
     private final int SIMTYPE_LOCAL_JACCARD = 2;
 
     private FGPNode a[], b[];
     private int nA, nB;
-    private double scores[];
+    private PairScoreCache scores;
     private double ancestrySimWeight, siblingSimWeight;
 
 
@@ -38,8 +46,7 @@ public class AncestryMatchScoreCache {
             b.get(i).setMatchId(i);
         }
 
-        scores = new double[nA * nB * 3];
-        Arrays.fill(scores, -1.0);
+        scores = new PairScoreCache(MAX_BYTES);
 
         double totalWeight = 1.0 + siblingSimWeight;
         this.ancestrySimWeight = 1.0 / totalWeight;
@@ -47,8 +54,8 @@ public class AncestryMatchScoreCache {
     }
 
 
-    private int index(FGPNode x, FGPNode y, int simType) {
-        return (x.getMatchId() * nB + y.getMatchId()) * 3 + simType;
+    private long index(FGPNode x, FGPNode y, int simType) {
+        return ((long) x.getMatchId() * nB + y.getMatchId()) * 3 + simType;
     }
 
     private double computeContextSimilarity(FGPNode x, FGPNode y, int simType) {
@@ -80,11 +87,11 @@ public class AncestryMatchScoreCache {
             double left, right;
             if (simType == SIMTYPE_JACCARD) {
                 left = x.leftSiblingsFeats.jaccardSimilarity(y.leftSiblingsFeats);
-                right = x.rightSiblingsFeats.jaccardSimilarity(y.rightSiblingsFeats);
+                right = x.rightSiblingsSimilarity(y);
             }
             else if (simType == SIMTYPE_UPPERBOUND) {
                 left = x.leftSiblingsFeats.jaccardSimilarityUpperBound(y.leftSiblingsFeats);
-                right = x.rightSiblingsFeats.jaccardSimilarityUpperBound(y.rightSiblingsFeats);
+                right = x.rightSiblingsSimilarityUpperBound(y);
             }
             else {
                 throw new RuntimeException();
@@ -99,14 +106,14 @@ public class AncestryMatchScoreCache {
     }
 
     private double computeSimilarity(FGPNode x, FGPNode y, int simType) {
-        int ndx = index(x, y, simType);
-        double score = scores[ndx];
+        long ndx = index(x, y, simType);
+        double score = scores.get(ndx);
         if (score >= 0.0) {
             return score;
         }
         if (simType == SIMTYPE_LOCAL_JACCARD) {
             score = x.nodeFeatures.jaccardSimilarity(y.nodeFeatures);
-            scores[ndx] = score;
+            scores.put(ndx, score);
             return score;
         }
         else {
@@ -120,7 +127,7 @@ public class AncestryMatchScoreCache {
 
             double contextSim = computeContextSimilarity(x, y, simType);
             score = contextSim * localSim;
-            scores[ndx] = score;
+            scores.put(ndx, score);
             return score;
         }
     }
@@ -1,10 +1,8 @@
 package com.github.gumtreediff.matchers.heuristic.fgp;
 
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.hash.FingerprintDictionary;
 
-import javax.xml.bind.DatatypeConverter;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Stack;
@@ -41,10 +39,15 @@ public class FGPNode {
     protected int depth = 0, subtreeSize = 0, distFromRoot = 0;
     protected boolean matched = false;
 
-    private String shapeSha, contentSha;
+    private int shapeFingerprint = -1, contentFingerprint = -1;
     private int shapeFGIndex = -1, contentFGIndex = -1;
     protected NodeHistogram nodeFeatures = null;
-    protected NodeHistogram leftSiblingsFeats = null, rightSiblingsFeats = null, parentContainmentFeatures = null;
+    protected NodeHistogram leftSiblingsFeats = null, parentContainmentFeatures = null;
+    // The right siblings features are (siblingsFeats - leftInclusiveFeats): the features of all the children
+    // of the parent, less the ones of this node and its left siblings. They are compared without building them.
+    protected NodeHistogram siblingsFeats = null, leftInclusiveFeats = null;
+    protected double rightSiblingsSum;
+    private NodeHistogram rightSiblingsFeats = null;
     protected double leftTree, rightTree;
 
     protected int matchId = -1;
@@ -94,62 +97,72 @@ public class FGPNode {
     }
 
 
-    public String getSha(boolean content) {
-        String sha = content ? contentSha : shapeSha;
-        if (sha == null) {
-            StringBuilder src = new StringBuilder();
-            src.append(String.valueOf(node.getType()));
-            if (content) {
-                src.append("[");
-                src.append(node.getLabel());
-                src.append("](");
-            }
-            else {
-                src.append("(");
-            }
-            boolean first = true;
+    /**
+     * Computes the shape fingerprints of the nodes of this subtree that do not have them yet, in the given
+     * dictionary, which has to be shared by the trees being matched. The content fingerprint of a node is its
+     * hash, which is its content id in the dictionary of its tree context. The shape fingerprints of the
+     * children are gathered in ids, which is returned, grown if needed, to be reused for the next node.
+     */
+    private int[] updateFingerprints(FingerprintDictionary shapes, int[] ids) {
+        if (shapeFingerprint == -1) {
             for (FGPNode child: children) {
-                if (!first) {
-                    src.append(",");
-                }
-                src.append(child.getSha(content));
-                first = false;
-            }
-            src.append(")");
-            MessageDigest md;
-            try {
-                md = MessageDigest.getInstance("SHA-256");
-            } catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-                throw new RuntimeException();
+                ids = child.updateFingerprints(shapes, ids);
             }
-            byte[] digest = md.digest(src.toString().getBytes());
-            sha = DatatypeConverter.printHexBinary(digest);
-            if (content) {
-                contentSha = sha;
+            if (ids.length < children.length) {
+                ids = new int[children.length * 2];
             }
-            else {
-                shapeSha = sha;
+            for (int i = 0; i < children.length; i++) {
+                ids[i] = children[i].shapeFingerprint;
             }
+            shapeFingerprint = shapes.shapeId(node.getType(), ids, children.length);
+            contentFingerprint = node.getHash();
         }
-        return sha;
+        return ids;
     }
 
-    public void updateFingerprintIndex(FingerprintTable shapeFingerprints, FingerprintTable contentFingerprints) {
+    public void updateFingerprintIndex(FingerprintDictionary shapes, FingerprintTable shapeFingerprints,
+                                       FingerprintTable contentFingerprints) {
+        updateFingerprints(shapes, new int[16]);
+        updateIndices(shapeFingerprints, contentFingerprints);
+    }
+
+    private void updateIndices(FingerprintTable shapeFingerprints, FingerprintTable contentFingerprints) {
         if (shapeFingerprints != null && shapeFGIndex == -1 ||
             contentFingerprints != null && contentFGIndex == -1) {
             for (FGPNode node: children) {
-                node.updateFingerprintIndex(shapeFingerprints, contentFingerprints);
+                node.updateIndices(shapeFingerprints, contentFingerprints);
             }
             if (shapeFingerprints != null) {
-                shapeFGIndex = shapeFingerprints.getIndexForSha(getSha(false));
+                shapeFGIndex = shapeFingerprints.getIndexForFingerprint(shapeFingerprint);
             }
             if (contentFingerprints != null) {
-                contentFGIndex = contentFingerprints.getIndexForSha(getSha(true));
+                contentFGIndex = contentFingerprints.getIndexForFingerprint(contentFingerprint);
             }
         }
     }
 
+    /**
+     * Returns the features of the right siblings of this node, built on first use.
+     */
+    public NodeHistogram getRightSiblingsFeats() {
+        if (rightSiblingsFeats == null) {
+            rightSiblingsFeats = siblingsFeats.sub(leftInclusiveFeats);
+        }
+        return rightSiblingsFeats;
+    }
+
+    /**
+     * Jaccard similarity of the features of the right siblings of this node and @b, in one merge pass.
+     */
+    public double rightSiblingsSimilarity(FGPNode b) {
+        return NodeHistogram.jaccardSimilarityOfSums(siblingsFeats, 1.0, leftInclusiveFeats, -1.0,
+                b.siblingsFeats, 1.0, b.leftInclusiveFeats, -1.0);
+    }
+
+    public double rightSiblingsSimilarityUpperBound(FGPNode b) {
+        return NodeHistogram.jaccardSimilarityUpperBound(rightSiblingsSum, b.rightSiblingsSum);
+    }
+
     public int getShapeFingerprintIndex() {
         return shapeFGIndex;
     }
@@ -1,24 +1,25 @@
 package com.github.gumtreediff.matchers.heuristic.fgp;
 
-import java.util.HashMap;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
 
 /**
  * Created by Geoff on 06/04/2016.
  */
 public class FingerprintTable {
-    private HashMap<String, Integer> shaToIndex = new HashMap<>();
+    private TIntIntMap fingerprintToIndex = new TIntIntHashMap(16, 0.5f, -1, -1);
 
 
     public int size() {
-        return shaToIndex.size();
+        return fingerprintToIndex.size();
     }
 
 
-    int getIndexForSha(String sha) {
-        Integer index = shaToIndex.get(sha);
-        if (index == null) {
-            index = shaToIndex.size();
-            shaToIndex.put(sha, index);
+    int getIndexForFingerprint(int fingerprint) {
+        int index = fingerprintToIndex.get(fingerprint);
+        if (index == -1) {
+            index = fingerprintToIndex.size();
+            fingerprintToIndex.put(fingerprint, index);
         }
         return index;
     }
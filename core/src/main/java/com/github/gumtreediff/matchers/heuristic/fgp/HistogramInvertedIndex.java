@@ -0,0 +1,153 @@
+package com.github.gumtreediff.matchers.heuristic.fgp;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inverted index from histogram feature index to the histograms that have an entry for that feature.
+ *
+ * A query only walks the posting lists of the features present in the query histogram, accumulating
+ * the intersection with every indexed histogram that shares at least one feature with it. Histograms that
+ * share no feature have a Jaccard similarity of 0 and are never visited, so a query costs time proportional
+ * to the postings it touches rather than to the number of indexed histograms.
+ *
+ * Histograms are identified by their position in the list passed to the constructor, and the candidates of
+ * a query are reported in increasing position order, so callers can keep the order of a nested loop over
+ * that list. Histogram values are assumed to be non-negative.
+ */
+public class HistogramInvertedIndex {
+    /**
+     * Slack applied to the minimum similarity of a query: similarities are computed from the histogram sums
+     * rather than by merging, so they may differ from `NodeHistogram.jaccardSimilarity` by rounding.
+     */
+    public static final double TOLERANCE = 1.0e-9;
+
+    private int postingStarts[];
+    private int postingPositions[];
+    private double postingValues[];
+    private double sums[];
+
+    // Per-query accumulators, indexed by position; `stamps` avoids clearing them between queries
+    private double intersections[];
+    private int stamps[];
+    private int stamp = 0;
+    private int touched[];
+
+    private int candidates[];
+    private double similarities[];
+    private int candidateCount = 0;
+
+
+    public HistogramInvertedIndex(List<NodeHistogram> histograms) {
+        int n = histograms.size();
+        sums = new double[n];
+        int maxFeature = -1, entries = 0;
+        for (int p = 0; p < n; p++) {
+            NodeHistogram h = histograms.get(p);
+            sums[p] = h.getSum();
+            entries += h.entryCount();
+            for (int e = 0; e < h.entryCount(); e++) {
+                maxFeature = Math.max(maxFeature, h.entryIndex(e));
+            }
+        }
+
+        // Counting sort of the entries by feature; postings end up in increasing position order
+        postingStarts = new int[maxFeature + 2];
+        for (NodeHistogram h: histograms) {
+            for (int e = 0; e < h.entryCount(); e++) {
+                postingStarts[h.entryIndex(e) + 1]++;
+            }
+        }
+        for (int f = 0; f <= maxFeature; f++) {
+            postingStarts[f + 1] += postingStarts[f];
+        }
+        postingPositions = new int[entries];
+        postingValues = new double[entries];
+        int fill[] = Arrays.copyOf(postingStarts, maxFeature + 1);
+        for (int p = 0; p < n; p++) {
+            NodeHistogram h = histograms.get(p);
+            for (int e = 0; e < h.entryCount(); e++) {
+                int slot = fill[h.entryIndex(e)]++;
+                postingPositions[slot] = p;
+                postingValues[slot] = h.entryValue(e);
+            }
+        }
+
+        intersections = new double[n];
+        stamps = new int[n];
+        touched = new int[n];
+        candidates = new int[n];
+        similarities = new double[n];
+    }
+
+    /**
+     * Number of indexed histograms.
+     */
+    public int size() {
+        return sums.length;
+    }
+
+    /**
+     * Find the indexed histograms that share at least one feature with `query` and whose Jaccard similarity
+     * with it is at least `minSimilarity` (within `TOLERANCE`). Results are available through `candidate`
+     * and `similarity` until the next query.
+     *
+     * @return the number of candidates
+     */
+    public int query(NodeHistogram query, double minSimilarity) {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 0;
+        }
+        stamp++;
+
+        int nTouched = 0;
+        int maxFeature = postingStarts.length - 2;
+        for (int e = 0; e < query.entryCount(); e++) {
+            int f = query.entryIndex(e);
+            if (f < 0 || f > maxFeature) {
+                continue;
+            }
+            double x = query.entryValue(e);
+            for (int slot = postingStarts[f]; slot < postingStarts[f + 1]; slot++) {
+                int p = postingPositions[slot];
+                if (stamps[p] != stamp) {
+                    stamps[p] = stamp;
+                    intersections[p] = 0.0;
+                    touched[nTouched++] = p;
+                }
+                intersections[p] += Math.min(x, postingValues[slot]);
+            }
+        }
+        Arrays.sort(touched, 0, nTouched);
+
+        candidateCount = 0;
+        for (int i = 0; i < nTouched; i++) {
+            int p = touched[i];
+            double intersection = intersections[p];
+            // max(x, y) = x + y - min(x, y), so the union follows from the sums and the intersection
+            double union = query.getSum() + sums[p] - intersection;
+            double similarity = union <= 0.0 ? 0.0 : intersection / union;
+            if (similarity >= minSimilarity - TOLERANCE) {
+                candidates[candidateCount] = p;
+                similarities[candidateCount] = similarity;
+                candidateCount++;
+            }
+        }
+        return candidateCount;
+    }
+
+    /**
+     * Position of the `i`th candidate of the last query.
+     */
+    public int candidate(int i) {
+        return candidates[i];
+    }
+
+    /**
+     * Jaccard similarity between the query and the `i`th candidate of the last query.
+     */
+    public double similarity(int i) {
+        return similarities[i];
+    }
+}
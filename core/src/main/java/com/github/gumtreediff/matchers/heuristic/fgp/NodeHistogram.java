@@ -113,6 +113,22 @@ public class NodeHistogram {
         return sum;
     }
 
+    /**
+     * Number of stored entries; entries are accessed in increasing index order through
+     * `entryIndex` and `entryValue`.
+     */
+    public int entryCount() {
+        return indices.length;
+    }
+
+    public int entryIndex(int entry) {
+        return indices[entry];
+    }
+
+    public double entryValue(int entry) {
+        return values[entry];
+    }
+
 
     /**
      * Create an iterable that extracts values from @this and @b. It generates ValuePair instances
@@ -169,9 +185,23 @@ public class NodeHistogram {
 
     public double jaccardSimilarity(NodeHistogram b) {
         double intersection = 0.0, union = 0.0;
-        for (ValuePair iab: pairIter(b)) {
-            intersection += Math.min(iab.a, iab.b);
-            union += Math.max(iab.a, iab.b);
+        int i = 0, j = 0;
+        while (i < indices.length || j < b.indices.length) {
+            double x, y;
+            if (j >= b.indices.length || (i < indices.length && indices[i] < b.indices[j])) {
+                x = values[i++];
+                y = 0.0;
+            }
+            else if (i >= indices.length || b.indices[j] < indices[i]) {
+                x = 0.0;
+                y = b.values[j++];
+            }
+            else {
+                x = values[i++];
+                y = b.values[j++];
+            }
+            intersection += Math.min(x, y);
+            union += Math.max(x, y);
         }
         if (union == 0.0) {
             if (intersection != 0.0) {
@@ -185,11 +215,79 @@ public class NodeHistogram {
     }
 
 
+    /**
+     * Jaccard similarity of (wa * a + wb * b) and (wc * c + wd * d), computed in a single merge pass
+     * over the four histograms without building the sums.
+     */
+    public static double jaccardSimilarityOfSums(NodeHistogram a, double wa, NodeHistogram b, double wb,
+                                                 NodeHistogram c, double wc, NodeHistogram d, double wd) {
+        double intersection = 0.0, union = 0.0;
+        int ia = 0, ib = 0, ic = 0, id = 0;
+        while (true) {
+            int index = Integer.MAX_VALUE;
+            if (ia < a.indices.length) index = Math.min(index, a.indices[ia]);
+            if (ib < b.indices.length) index = Math.min(index, b.indices[ib]);
+            if (ic < c.indices.length) index = Math.min(index, c.indices[ic]);
+            if (id < d.indices.length) index = Math.min(index, d.indices[id]);
+            if (index == Integer.MAX_VALUE) {
+                break;
+            }
+            double x = 0.0, y = 0.0;
+            if (ia < a.indices.length && a.indices[ia] == index) x += wa * a.values[ia++];
+            if (ib < b.indices.length && b.indices[ib] == index) x += wb * b.values[ib++];
+            if (ic < c.indices.length && c.indices[ic] == index) y += wc * c.values[ic++];
+            if (id < d.indices.length && d.indices[id] == index) y += wd * d.values[id++];
+            intersection += Math.min(x, y);
+            union += Math.max(x, y);
+        }
+        return union == 0.0 ? 0.0 : intersection / union;
+    }
+
+
+    /**
+     * Sum of the values of (wa * a + wb * b), computed without building it. The values are added in
+     * index order, so the result is exactly the sum of the materialised histogram.
+     */
+    public static double sumOfSum(NodeHistogram a, double wa, NodeHistogram b, double wb) {
+        double sum = 0.0;
+        int i = 0, j = 0;
+        while (i < a.indices.length || j < b.indices.length) {
+            double x = 0.0;
+            if (j >= b.indices.length || (i < a.indices.length && a.indices[i] < b.indices[j])) {
+                x += wa * a.values[i++];
+            }
+            else if (i >= a.indices.length || b.indices[j] < a.indices[i]) {
+                x += wb * b.values[j++];
+            }
+            else {
+                x += wa * a.values[i++];
+                x += wb * b.values[j++];
+            }
+            sum += x;
+        }
+        return sum;
+    }
+
+
     public double[] jaccardSimilarityParts(NodeHistogram b) {
         double intersection = 0.0, union = 0.0;
-        for (ValuePair iab: pairIter(b)) {
-            intersection += Math.min(iab.a, iab.b);
-            union += Math.max(iab.a, iab.b);
+        int i = 0, j = 0;
+        while (i < indices.length || j < b.indices.length) {
+            double x, y;
+            if (j >= b.indices.length || (i < indices.length && indices[i] < b.indices[j])) {
+                x = values[i++];
+                y = 0.0;
+            }
+            else if (i >= indices.length || b.indices[j] < indices[i]) {
+                x = 0.0;
+                y = b.values[j++];
+            }
+            else {
+                x = values[i++];
+                y = b.values[j++];
+            }
+            intersection += Math.min(x, y);
+            union += Math.max(x, y);
         }
         if (union == 0.0) {
             if (intersection != 0.0) {
@@ -204,8 +302,15 @@ public class NodeHistogram {
 
 
     public double jaccardSimilarityUpperBound(NodeHistogram b) {
-        double intersection = Math.min(sum, b.sum);
-        double union = Math.max(sum, b.sum);
+        return jaccardSimilarityUpperBound(sum, b.sum);
+    }
+
+    /**
+     * Upper bound of the jaccard similarity of two histograms of non-negative values with the given sums.
+     */
+    public static double jaccardSimilarityUpperBound(double sumA, double sumB) {
+        double intersection = Math.min(sumA, sumB);
+        double union = Math.max(sumA, sumB);
         if (union == 0.0) {
             if (intersection != 0.0) {
                 throw new RuntimeException("intersection != 0 && union == 0");
@@ -220,9 +325,22 @@ public class NodeHistogram {
 
     public double cost(NodeHistogram b) {
         double cost = 0.0;
-        for (ValuePair iab: pairIter(b)) {
-            double c = Math.max(iab.a, iab.b) - Math.min(iab.a, iab.b);
-            cost += c;
+        int i = 0, j = 0;
+        while (i < indices.length || j < b.indices.length) {
+            double x, y;
+            if (j >= b.indices.length || (i < indices.length && indices[i] < b.indices[j])) {
+                x = values[i++];
+                y = 0.0;
+            }
+            else if (i >= indices.length || b.indices[j] < indices[i]) {
+                x = 0.0;
+                y = b.values[j++];
+            }
+            else {
+                x = values[i++];
+                y = b.values[j++];
+            }
+            cost += Math.max(x, y) - Math.min(x, y);
         }
         return cost;
     }
@@ -231,40 +349,108 @@ public class NodeHistogram {
         return Math.max(sum, b.sum) - Math.min(sum, b.sum);
     }
 
-    public NodeHistogram add(NodeHistogram b) {
-        ArrayList<Integer> ndx = new ArrayList<>();
-        ArrayList<Double> val = new ArrayList<>();
-        for (ValuePair iab: pairIter(b)) {
-            ndx.add(iab.index);
-            val.add(iab.a + iab.b);
+    /**
+     * Computes (this + weight * b) element-wise in one pass over the primitive arrays; a weight of 1 or -1
+     * gives exactly the sum or the difference. When @dropZeros is set, indices whose result is 0 are left out.
+     */
+    private NodeHistogram mergeWeighted(NodeHistogram b, double weight, boolean dropZeros) {
+        int ndx[] = new int[indices.length + b.indices.length];
+        double val[] = new double[ndx.length];
+        int i = 0, j = 0, k = 0;
+        while (i < indices.length || j < b.indices.length) {
+            int index;
+            double x, y;
+            if (j >= b.indices.length || (i < indices.length && indices[i] < b.indices[j])) {
+                index = indices[i];
+                x = values[i++];
+                y = 0.0;
+            }
+            else if (i >= indices.length || b.indices[j] < indices[i]) {
+                index = b.indices[j];
+                x = 0.0;
+                y = b.values[j++];
+            }
+            else {
+                index = indices[i];
+                x = values[i++];
+                y = b.values[j++];
+            }
+            double v = x + weight * y;
+            if (!dropZeros || v != 0) {
+                ndx[k] = index;
+                val[k] = v;
+                k++;
+            }
         }
-        return new NodeHistogram(ndx, val);
+        return new NodeHistogram(Arrays.copyOf(ndx, k), Arrays.copyOf(val, k));
     }
 
-    public NodeHistogram sub(NodeHistogram b) {
-        ArrayList<Integer> ndx = new ArrayList<>();
-        ArrayList<Double> val = new ArrayList<>();
-        for (ValuePair iab: pairIter(b)) {
-            double v = iab.a - iab.b;
+    /**
+     * Computes the element-wise maximum of @this and @b, or the minimum when @sign is -1, as
+     * min(x, y) == -max(-x, -y). Indices whose result is 0 are left out.
+     */
+    private NodeHistogram mergeExtremum(NodeHistogram b, double sign) {
+        int ndx[] = new int[indices.length + b.indices.length];
+        double val[] = new double[ndx.length];
+        int i = 0, j = 0, k = 0;
+        while (i < indices.length || j < b.indices.length) {
+            int index;
+            double x, y;
+            if (j >= b.indices.length || (i < indices.length && indices[i] < b.indices[j])) {
+                index = indices[i];
+                x = values[i++];
+                y = 0.0;
+            }
+            else if (i >= indices.length || b.indices[j] < indices[i]) {
+                index = b.indices[j];
+                x = 0.0;
+                y = b.values[j++];
+            }
+            else {
+                index = indices[i];
+                x = values[i++];
+                y = b.values[j++];
+            }
+            double v = sign * Math.max(sign * x, sign * y);
             if (v != 0) {
-                ndx.add(iab.index);
-                val.add(v);
+                ndx[k] = index;
+                val[k] = v;
+                k++;
             }
         }
-        return new NodeHistogram(ndx, val);
+        return new NodeHistogram(Arrays.copyOf(ndx, k), Arrays.copyOf(val, k));
+    }
+
+    public NodeHistogram add(NodeHistogram b) {
+        return mergeWeighted(b, 1.0, false);
+    }
+
+    public NodeHistogram sub(NodeHistogram b) {
+        return mergeWeighted(b, -1.0, true);
     }
 
     public NodeHistogram scale(NodeHistogram b) {
-        ArrayList<Integer> ndx = new ArrayList<>();
-        ArrayList<Double> val = new ArrayList<>();
-        for (ValuePair iab: pairIter(b)) {
-            double v = iab.a * iab.b;
-            if (v != 0) {
-                ndx.add(iab.index);
-                val.add(v);
+        // Products are only non-zero at the indices present in both histograms
+        int ndx[] = new int[Math.min(indices.length, b.indices.length)];
+        double val[] = new double[ndx.length];
+        int i = 0, j = 0, k = 0;
+        while (i < indices.length && j < b.indices.length) {
+            if (indices[i] < b.indices[j]) {
+                i++;
+            }
+            else if (b.indices[j] < indices[i]) {
+                j++;
+            }
+            else {
+                double v = values[i++] * b.values[j++];
+                if (v != 0) {
+                    ndx[k] = indices[i - 1];
+                    val[k] = v;
+                    k++;
+                }
             }
         }
-        return new NodeHistogram(ndx, val);
+        return new NodeHistogram(Arrays.copyOf(ndx, k), Arrays.copyOf(val, k));
     }
 
     public NodeHistogram scale(double b) {
@@ -281,29 +467,11 @@ public class NodeHistogram {
     }
 
     public NodeHistogram intersect(NodeHistogram b) {
-        ArrayList<Integer> ndx = new ArrayList<>();
-        ArrayList<Double> val = new ArrayList<>();
-        for (ValuePair iab: pairIter(b)) {
-            double v = Math.min(iab.a, iab.b);
-            if (v != 0) {
-                ndx.add(iab.index);
-                val.add(v);
-            }
-        }
-        return new NodeHistogram(ndx, val);
+        return mergeExtremum(b, -1.0);
     }
 
     public NodeHistogram union(NodeHistogram b) {
-        ArrayList<Integer> ndx = new ArrayList<>();
-        ArrayList<Double> val = new ArrayList<>();
-        for (ValuePair iab: pairIter(b)) {
-            double v = Math.max(iab.a, iab.b);
-            if (v != 0) {
-                ndx.add(iab.index);
-                val.add(v);
-            }
-        }
-        return new NodeHistogram(ndx, val);
+        return mergeExtremum(b, 1.0);
     }
 
     public NodeHistogram abs() {
@@ -352,6 +520,83 @@ public class NodeHistogram {
     }
 
 
+    /**
+     * Mutable histogram used to build histograms without intermediate instances: values are accumulated
+     * in place in a dense scratch array indexed by histogram index, which is kept and reused after
+     * {@link #clear()}. Accumulating values in a given order gives exactly the histogram that the
+     * corresponding chain of {@link #add(NodeHistogram)} calls would.
+     */
+    public static class Accumulator {
+        private double dense[] = new double[0];
+        private boolean present[] = new boolean[0];
+        private int touched[] = new int[16];
+        private int count = 0;
+
+        private void touch(int i) {
+            if (i >= dense.length) {
+                int len = Math.max(i + 1, dense.length * 2);
+                dense = Arrays.copyOf(dense, len);
+                present = Arrays.copyOf(present, len);
+            }
+            if (!present[i]) {
+                present[i] = true;
+                if (count == touched.length) {
+                    touched = Arrays.copyOf(touched, count * 2);
+                }
+                touched[count++] = i;
+            }
+        }
+
+        public void set(int i, double x) {
+            touch(i);
+            dense[i] = x;
+        }
+
+        public void add(NodeHistogram h) {
+            for (int k = 0; k < h.indices.length; k++) {
+                int i = h.indices[k];
+                touch(i);
+                dense[i] += h.values[k];
+            }
+        }
+
+        /**
+         * Adds h scaled by factor; like {@link NodeHistogram#scale(double)}, a factor of 0 adds nothing.
+         */
+        public void addScaled(NodeHistogram h, double factor) {
+            if (factor == 0.0) {
+                return;
+            }
+            for (int k = 0; k < h.indices.length; k++) {
+                int i = h.indices[k];
+                touch(i);
+                dense[i] += h.values[k] * factor;
+            }
+        }
+
+        /**
+         * Returns a histogram holding the accumulated values; the accumulator is left unchanged.
+         */
+        public NodeHistogram toHistogram() {
+            Arrays.sort(touched, 0, count);
+            int ndx[] = Arrays.copyOf(touched, count);
+            double val[] = new double[count];
+            for (int k = 0; k < count; k++) {
+                val[k] = dense[ndx[k]];
+            }
+            return new NodeHistogram(ndx, val);
+        }
+
+        public void clear() {
+            for (int k = 0; k < count; k++) {
+                dense[touched[k]] = 0.0;
+                present[touched[k]] = false;
+            }
+            count = 0;
+        }
+    }
+
+
     public static class ValuePair {
         public int index;
         public double a, b;
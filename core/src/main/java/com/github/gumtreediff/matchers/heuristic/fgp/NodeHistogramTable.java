@@ -2,6 +2,7 @@ package com.github.gumtreediff.matchers.heuristic.fgp;
 
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.hash.FingerprintDictionary;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -12,9 +13,13 @@ import java.util.Set;
  */
 public class NodeHistogramTable {
     double nonLocalityScaling =1.0, nonLocalityBalanceExp =0.0;
+    // Shape fingerprints of the trees of this table only, so that they are neither kept nor contended across
+    // matches. The content fingerprints are the hashes of the nodes.
+    FingerprintDictionary shapes = new FingerprintDictionary();
     FingerprintTable shapeFingerprints = new FingerprintTable();
     FingerprintTable contentFingerprints = new FingerprintTable();
     ArrayList<NodeHistogram> featsByContentFGIndex = new ArrayList<>();
+    private NodeHistogram.Accumulator accumulator = new NodeHistogram.Accumulator();
 
 
     public NodeHistogramTable() {
@@ -27,7 +32,7 @@ public class NodeHistogramTable {
 
 
     public void addTree(FGPNode tree) {
-        tree.updateFingerprintIndex(shapeFingerprints, contentFingerprints);
+        tree.updateFingerprintIndex(shapes, shapeFingerprints, contentFingerprints);
 
         for (int i = featsByContentFGIndex.size(); i < contentFingerprints.size(); i++) {
             featsByContentFGIndex.add(null);
@@ -40,7 +45,9 @@ public class NodeHistogramTable {
 
     private void buildTreeFeaturesBottomUp(FGPNode root) {
         root.leftSiblingsFeats = new NodeHistogram();
-        root.rightSiblingsFeats = new NodeHistogram();
+        root.siblingsFeats = root.leftSiblingsFeats;
+        root.leftInclusiveFeats = root.leftSiblingsFeats;
+        root.rightSiblingsSum = 0.0;
         buildNodeFeaturesBottomUp(root);
     }
 
@@ -55,8 +62,10 @@ public class NodeHistogramTable {
             NodeHistogram cumulativeChildFeats[] = new NodeHistogram[node.children.length + 1];
             cumulativeChildFeats[0] = new NodeHistogram();
 
+            accumulator.clear();
             for (int i = 0; i < node.children.length; i++) {
-                cumulativeChildFeats[i+1] = cumulativeChildFeats[i].add(node.children[i].nodeFeatures);
+                accumulator.add(node.children[i].nodeFeatures);
+                cumulativeChildFeats[i+1] = accumulator.toHistogram();
             }
 
             NodeHistogram last = cumulativeChildFeats[cumulativeChildFeats.length-1];
@@ -64,7 +73,9 @@ public class NodeHistogramTable {
             for (int i = 0; i < node.children.length; i++) {
                 FGPNode child = node.children[i];
                 child.leftSiblingsFeats = cumulativeChildFeats[i];
-                child.rightSiblingsFeats = last.sub(cumulativeChildFeats[i+1]);
+                child.siblingsFeats = last;
+                child.leftInclusiveFeats = cumulativeChildFeats[i+1];
+                child.rightSiblingsSum = NodeHistogram.sumOfSum(last, 1.0, cumulativeChildFeats[i+1], -1.0);
             }
         }
 
@@ -73,13 +84,14 @@ public class NodeHistogramTable {
         NodeHistogram feats = featsByContentFGIndex.get(contentFg);
         double nonLocalityScaleFactor = Math.pow(1.0 / node.children.length, nonLocalityBalanceExp) * nonLocalityScaling;
         if (feats == null) {
-            feats = new NodeHistogram();
+            accumulator.clear();
 //            int shapeFG = node.getShapeFingerprintIndex();
-            feats.set(contentFg, 1);
+            accumulator.set(contentFg, 1);
 
             for (FGPNode child: node.children) {
-                feats = feats.add(child.nodeFeatures.scale(nonLocalityScaleFactor));
+                accumulator.addScaled(child.nodeFeatures, nonLocalityScaleFactor);
             }
+            feats = accumulator.toHistogram();
             featsByContentFGIndex.set(contentFg, feats);
         }
 
@@ -107,21 +119,31 @@ public class NodeHistogramTable {
     }
 
 
-    public static double scoreMatchContext(FGPNode a, FGPNode b) {
+    /**
+     * Largest value `scoreMatchContext` can return; the sum of its weights
+     */
+    public static final double MAX_CONTEXT_SCORE = 0.005 + 0.005 + 0.05 + 0.05;
+
+    /**
+     * Part of the context score that depends on the weight of the trees to the left and right of the nodes.
+     */
+    public static double scoreMatchPosition(FGPNode a, FGPNode b) {
         double leftSim = Math.min(a.leftTree, b.leftTree) / (Math.max(a.leftTree, b.leftTree) + 1.0e-9);
         double rightSim = Math.min(a.rightTree, b.rightTree) / (Math.max(a.rightTree, b.rightTree) + 1.0e-9);
-        return leftSim * 0.005 + rightSim * 0.005 +
+        return leftSim * 0.005 + rightSim * 0.005;
+    }
+
+    public static double scoreMatchContext(FGPNode a, FGPNode b) {
+        return scoreMatchPosition(a, b) +
                 a.leftSiblingsFeats.jaccardSimilarity(b.leftSiblingsFeats) * 0.05 +
-                a.rightSiblingsFeats.jaccardSimilarity(b.rightSiblingsFeats) * 0.05/* +
+                a.rightSiblingsSimilarity(b) * 0.05/* +
                 a.parentContainmentFeatures.jaccardSimilarity(b.parentContainmentFeatures) * 0.2*/;
     }
 
     public static double scoreMatchContextUpperBound(FGPNode a, FGPNode b) {
-        double leftSim = Math.min(a.leftTree, b.leftTree) / (Math.max(a.leftTree, b.leftTree) + 1.0e-9);
-        double rightSim = Math.min(a.rightTree, b.rightTree) / (Math.max(a.rightTree, b.rightTree) + 1.0e-9);
-        return leftSim * 0.005 + rightSim * 0.005 +
+        return scoreMatchPosition(a, b) +
                 a.leftSiblingsFeats.jaccardSimilarityUpperBound(b.leftSiblingsFeats) * 0.05 +
-                a.rightSiblingsFeats.jaccardSimilarityUpperBound(b.rightSiblingsFeats) * 0.05/* +
+                a.rightSiblingsSimilarityUpperBound(b) * 0.05/* +
                 a.parentContainmentFeatures.jaccardSimilarity(b.parentContainmentFeatures) * 0.2*/;
     }
 
@@ -130,7 +152,7 @@ public class NodeHistogramTable {
         double rightCost = Math.max(a.rightTree, b.rightTree) - Math.min(a.rightTree, b.rightTree);
         return leftCost * 0.005 + rightCost * 0.005 +
                 a.leftSiblingsFeats.cost(b.leftSiblingsFeats) * 0.05 +
-                a.rightSiblingsFeats.cost(b.rightSiblingsFeats) * 0.05/* +
+                a.getRightSiblingsFeats().cost(b.getRightSiblingsFeats()) * 0.05/* +
                 a.parentContainmentFeatures.jaccardSimilarity(b.parentContainmentFeatures) * 0.2*/;
     }
 
@@ -139,7 +161,7 @@ public class NodeHistogramTable {
         double rightCost = Math.max(a.rightTree, b.rightTree) - Math.min(a.rightTree, b.rightTree);
         return leftCost * 0.005 + rightCost * 0.005 +
                 a.leftSiblingsFeats.costLowerBound(b.leftSiblingsFeats) * 0.05 +
-                a.rightSiblingsFeats.costLowerBound(b.rightSiblingsFeats) * 0.05/* +
+                Math.abs(a.rightSiblingsSum - b.rightSiblingsSum) * 0.05/* +
                 a.parentContainmentFeatures.jaccardSimilarity(b.parentContainmentFeatures) * 0.2*/;
     }
 
@@ -0,0 +1,112 @@
+package com.github.gumtreediff.matchers.heuristic.fgp;
+
+import java.util.Arrays;
+
+/**
+ * Memory-bounded cache of non-negative scores keyed by long, used for the scores of node pairs.
+ * Entries live in open-addressing tables of primitive keys and values. Once the current table holds
+ * its maximum number of entries it becomes the previous table and a new one is started, dropping
+ * the older previous table; entries found in the previous table are moved back to the current one,
+ * so the entries in use survive while the others are evicted.
+ */
+public class PairScoreCache {
+    public static final double MISSING = -1.0;
+
+    private static final long EMPTY = -1L;
+    private static final int MIN_ENTRIES = 1 << 12;
+    // Two tables at most half full, with a long key and a double value per slot
+    private static final int BYTES_PER_ENTRY = 2 * 2 * (8 + 8);
+
+    private final int maxEntries;
+    private Table current, previous;
+
+
+    private static class Table {
+        private long keys[];
+        private double values[];
+        private int size;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new double[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            long h = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        double get(long key) {
+            int slot = slot(key);
+            return keys[slot] == EMPTY ? MISSING : values[slot];
+        }
+
+        void put(long key, double value) {
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            long oldKeys[] = keys;
+            double oldValues[] = values;
+            keys = new long[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Creates a cache using at most about maxBytes bytes.
+     */
+    public PairScoreCache(long maxBytes) {
+        this.maxEntries = (int) Math.max(MIN_ENTRIES, Math.min(maxBytes / BYTES_PER_ENTRY, 1 << 28));
+        this.current = new Table(64);
+    }
+
+    /**
+     * Returns the score stored for the given key, or MISSING.
+     */
+    public double get(long key) {
+        double score = current.get(key);
+        if (score == MISSING && previous != null) {
+            score = previous.get(key);
+            if (score != MISSING) {
+                put(key, score);
+            }
+        }
+        return score;
+    }
+
+    public void put(long key, double score) {
+        if (current.size >= maxEntries) {
+            previous = current;
+            current = new Table(64);
+        }
+        current.put(key, score);
+    }
+
+    public int size() {
+        return current.size + (previous != null ? previous.size : 0);
+    }
+}
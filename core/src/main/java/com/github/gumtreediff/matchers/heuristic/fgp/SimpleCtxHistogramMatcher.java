@@ -120,11 +120,29 @@ public class SimpleCtxHistogramMatcher extends AbstractHistogramMatcher {
 
         // Gather all matches whose upper bound is less than the threshold
         ArrayList<ScoredMatch> matchesByUpperBound = new ArrayList<>();
-        for (FGPNode a: nodesA) {
-            for (FGPNode b: nodesB) {
-                double scoreUpperBound = NodeHistogramTable.scoreMatchUpperBound(a, b);
-                if (scoreUpperBound > SIM_THRESHOLD) {
-                    matchesByUpperBound.add(new ScoredMatch(scoreUpperBound, a, b));
+        if (SIM_THRESHOLD > NodeHistogramTable.MAX_CONTEXT_SCORE) {
+            // A pair whose node features have a Jaccard similarity below `SIM_THRESHOLD - MAX_CONTEXT_SCORE`
+            // can never reach the threshold, so only visit the candidates reported by an inverted index
+            HistogramInvertedIndex indexB = new HistogramInvertedIndex(nodeFeatures(nodesB));
+            double minSimilarity = SIM_THRESHOLD - NodeHistogramTable.MAX_CONTEXT_SCORE;
+            for (FGPNode a: nodesA) {
+                int nCandidates = indexB.query(a.nodeFeatures, minSimilarity);
+                for (int i = 0; i < nCandidates; i++) {
+                    FGPNode b = nodesB.get(indexB.candidate(i));
+                    double scoreUpperBound = NodeHistogramTable.scoreMatchUpperBound(a, b);
+                    if (scoreUpperBound > SIM_THRESHOLD) {
+                        matchesByUpperBound.add(new ScoredMatch(scoreUpperBound, a, b));
+                    }
+                }
+            }
+        }
+        else {
+            for (FGPNode a: nodesA) {
+                for (FGPNode b: nodesB) {
+                    double scoreUpperBound = NodeHistogramTable.scoreMatchUpperBound(a, b);
+                    if (scoreUpperBound > SIM_THRESHOLD) {
+                        matchesByUpperBound.add(new ScoredMatch(scoreUpperBound, a, b));
+                    }
                 }
             }
         }
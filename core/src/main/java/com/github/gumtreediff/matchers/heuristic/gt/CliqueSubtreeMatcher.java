@@ -135,26 +135,6 @@ public class CliqueSubtreeMatcher extends SubtreeMatcher {
             return 0;
         }
 
-        private Map<ITree, List<ITree>> srcDescendants = new HashMap<>();
-
-        private Map<ITree, Set<ITree>> dstDescendants = new HashMap<>();
-
-        protected int numberOfCommonDescendants(ITree src, ITree dst) {
-            if (!srcDescendants.containsKey(src))
-                srcDescendants.put(src, src.getDescendants());
-            if (!dstDescendants.containsKey(dst))
-                dstDescendants.put(dst, new HashSet<>(dst.getDescendants()));
-
-            int common = 0;
-
-            for (ITree t: srcDescendants.get(src)) {
-                ITree m = mappings.getDstForSrc(t);
-                if (m != null && dstDescendants.get(dst).contains(m)) common++;
-            }
-
-            return common;
-        }
-
         protected double[] sims(ITree src, ITree dst) {
             double[] sims = new double[4];
             sims[0] = jaccardSimilarity(src.getParent(), dst.getParent());
@@ -164,11 +144,5 @@ public class CliqueSubtreeMatcher extends SubtreeMatcher {
             return sims;
         }
 
-        protected double jaccardSimilarity(ITree src, ITree dst) {
-            double num = (double) numberOfCommonDescendants(src, dst);
-            double den = (double) srcDescendants.get(src).size() + (double) dstDescendants.get(dst).size() - num;
-            return num / den;
-        }
-
     }
 }
@@ -124,7 +124,8 @@ public class CompleteBottomUpMatcher extends Matcher {
         TreeUtils.removeMatched(cDst);
 
         if (cSrc.getSize() < SIZE_THRESHOLD || cDst.getSize() < SIZE_THRESHOLD) {
-            Matcher m = new ZsMatcher(cSrc, cDst, new MappingStore());
+            Matcher m = new ZsMatcher(cSrc, cDst, new MappingStore(), Double.POSITIVE_INFINITY,
+                    getLabelSimilarity());
             m.match();
             for (Mapping candidate: m.getMappings()) {
                 ITree left = srcIds.getTree(candidate.getFirst().getId());
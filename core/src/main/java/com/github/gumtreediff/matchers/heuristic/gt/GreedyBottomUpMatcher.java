@@ -26,6 +26,7 @@ import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.heuristic.fgp.FingerprintMatchHelper;
 import com.github.gumtreediff.matchers.optimal.zs.ZsMatcher;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.IntervalIndex;
 import com.github.gumtreediff.tree.TreeMap;
 import com.github.gumtreediff.tree.TreeUtils;
 
@@ -45,6 +46,10 @@ public class GreedyBottomUpMatcher extends Matcher {
 
     private static final int SIZE_THRESHOLD = Integer.parseInt(System.getProperty("gumtree.match.bu.size", "1000"));
 
+    // Largest edit distance of the remainders for the last chance match, as a fraction of their total size
+    private static final double TED_BUDGET = Double.parseDouble(
+            System.getProperty("gumtree.match.bu.ted_budget", "1.0"));
+
     static {
         String simThresh = "0.3";
         Map<String, String> env = System.getenv();
@@ -89,6 +94,13 @@ public class GreedyBottomUpMatcher extends Matcher {
 
     private TreeMap dstIds;
 
+    // Number of mapped descendants of the current source node below each destination node, by pre-order rank.
+    private int[] commonCounts;
+
+    private int[] touchedRanks;
+
+    private int touchedCount;
+
     public GreedyBottomUpMatcher(ITree src, ITree dst, MappingStore store) {
         super(src, dst, store);
     }
@@ -102,6 +114,8 @@ public class GreedyBottomUpMatcher extends Matcher {
     public void match() {
         srcIds = new TreeMap(src);
         dstIds = new TreeMap(dst);
+        commonCounts = new int[getDstIndex().size()];
+        touchedRanks = new int[getDstIndex().size()];
 
         for (ITree t: src.postOrder())  {
             if (t.isRoot()) {
@@ -109,7 +123,8 @@ public class GreedyBottomUpMatcher extends Matcher {
                 lastChanceMatch(t, this.dst);
                 break;
             } else if (!(t.isMatched() || t.isLeaf())) {
-                List<ITree> candidates = getDstCandidates(t);
+                boolean counted = getDstIndex().isComplete() && getSrcIndex().contains(t);
+                List<ITree> candidates = counted ? getCountedDstCandidates(t) : getDstCandidates(t);
                 ITree best = null;
                 double max = -1D;
 
@@ -123,6 +138,9 @@ public class GreedyBottomUpMatcher extends Matcher {
                             sim = helper.scoreMatch(t, cand);
                         }
                     }
+                    else if (counted) {
+                        sim = countedJaccardSimilarity(t, cand);
+                    }
                     else {
                         sim = jaccardSimilarity(t, cand);
                     }
@@ -155,6 +173,9 @@ public class GreedyBottomUpMatcher extends Matcher {
                     }
                 }
 
+                if (counted)
+                    resetCounts();
+
                 if (best != null) {
                     lastChanceMatch(t, best);
                     addMapping(t, best);
@@ -164,6 +185,52 @@ public class GreedyBottomUpMatcher extends Matcher {
         clean();
     }
 
+    /**
+     * Same candidates as {@link #getDstCandidates(ITree)}, in the same order, but each mapped descendant
+     * of src is propagated up the whole parent chain of its destination node, so that once done
+     * commonCounts holds the number of common descendants of src and every candidate.
+     */
+    private List<ITree> getCountedDstCandidates(ITree src) {
+        IntervalIndex srcIndex = getSrcIndex();
+        IntervalIndex dstIndex = getDstIndex();
+        List<ITree> candidates = new ArrayList<>();
+        int s = srcIndex.getRank(src);
+        int end = s + srcIndex.getSubtreeSize(s);
+        for (int r = s + 1; r < end; r++) {
+            ITree seed = mappings.getDstForSrc(srcIndex.getTree(r));
+            if (seed == null)
+                continue;
+            while (seed.getParent() != null) {
+                ITree parent = seed.getParent();
+                int p = dstIndex.getRank(parent);
+                // The destination root may still have a parent, which is not indexed
+                if (p < 0)
+                    break;
+                if (commonCounts[p]++ == 0) {
+                    touchedRanks[touchedCount++] = p;
+                    if (parent.getType() == src.getType() && !parent.isMatched() && !parent.isRoot())
+                        candidates.add(parent);
+                }
+                seed = parent;
+            }
+        }
+        return candidates;
+    }
+
+    private double countedJaccardSimilarity(ITree src, ITree dst) {
+        int d = getDstIndex().getRank(dst);
+        double num = (double) commonCounts[d];
+        double den = (double) (getSrcIndex().getSubtreeSize(getSrcIndex().getRank(src)) - 1)
+                + (double) (getDstIndex().getSubtreeSize(d) - 1) - num;
+        return num / den;
+    }
+
+    private void resetCounts() {
+        for (int i = 0; i < touchedCount; i++)
+            commonCounts[touchedRanks[i]] = 0;
+        touchedCount = 0;
+    }
+
     private List<ITree> getDstCandidates(ITree src) {
         List<ITree> seeds = new ArrayList<>();
         for (ITree c: src.getDescendants()) {
@@ -195,7 +262,8 @@ public class GreedyBottomUpMatcher extends Matcher {
         TreeUtils.removeMatched(cDst);
 
         if (cSrc.getSize() < SIZE_THRESHOLD || cDst.getSize() < SIZE_THRESHOLD) {
-            Matcher m = new ZsMatcher(cSrc, cDst, new MappingStore());
+            Matcher m = new ZsMatcher(cSrc, cDst, new MappingStore(),
+                    TED_BUDGET * (cSrc.getSize() + cDst.getSize()), getLabelSimilarity());
             m.match();
             for (Mapping candidate: m.getMappings()) {
                 ITree left = srcIds.getTree(candidate.getFirst().getId());
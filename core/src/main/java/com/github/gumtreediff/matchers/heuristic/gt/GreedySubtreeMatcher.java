@@ -118,27 +118,6 @@ public class GreedySubtreeMatcher extends SubtreeMatcher {
             return Double.compare(simMap.get(m2), simMap.get(m1));
         }
 
-        private Map<ITree, List<ITree>> srcDescendants = new HashMap<>();
-
-        private Map<ITree, Set<ITree>> dstDescendants = new HashMap<>();
-
-        protected int numberOfCommonDescendants(ITree src, ITree dst) {
-            if (!srcDescendants.containsKey(src))
-                srcDescendants.put(src, src.getDescendants());
-            if (!dstDescendants.containsKey(dst))
-                dstDescendants.put(dst, new HashSet<>(dst.getDescendants()));
-
-            int common = 0;
-
-            for (ITree t: srcDescendants.get(src)) {
-                ITree m = mappings.getDstForSrc(t);
-                if (m != null && dstDescendants.get(dst).contains(m))
-                    common++;
-            }
-
-            return common;
-        }
-
         protected double sim(ITree src, ITree dst) {
             if (helper != null) {
                 return helper.scoreMatchContext(src, dst);
@@ -173,11 +152,5 @@ public class GreedySubtreeMatcher extends SubtreeMatcher {
             }
         }
 
-        protected double jaccardSimilarity(ITree src, ITree dst) {
-            double num = (double) numberOfCommonDescendants(src, dst);
-            double den = (double) srcDescendants.get(src).size() + (double) dstDescendants.get(dst).size() - num;
-            return num / den;
-        }
-
     }
 }
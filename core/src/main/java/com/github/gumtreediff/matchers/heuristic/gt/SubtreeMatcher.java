@@ -25,19 +25,37 @@ import com.github.gumtreediff.matchers.MultiMappingStore;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.MultiMappingStore;
+import com.github.gumtreediff.tree.CompactTree;
 import com.github.gumtreediff.tree.ITree;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public abstract class SubtreeMatcher extends Matcher {
 
     private static int MIN_HEIGHT = Integer.parseInt(System.getProperty("gumtree.match.gt.minh", "2"));
 
+    // Height levels with at least this many trees are compared on the common fork-join pool
+    private static int PARALLEL_MIN_TREES = Integer.parseInt(System.getProperty("gumtree.match.gt.parallel", "512"));
+
+    private int parallelMinTrees = PARALLEL_MIN_TREES;
+
     public SubtreeMatcher(ITree src, ITree dst, MappingStore store) {
         super(src, dst, store);
     }
 
+    /**
+     * Sets the smallest number of trees of a height level for which its buckets are compared in parallel,
+     * gumtree.match.gt.parallel by default.
+     */
+    public void setParallelMinTrees(int parallelMinTrees) {
+        this.parallelMinTrees = parallelMinTrees;
+    }
+
     private void popLarger(PriorityTreeList srcs, PriorityTreeList dsts) {
         if (srcs.peekHeight() > dsts.peekHeight())
             srcs.open();
@@ -47,31 +65,30 @@ public abstract class SubtreeMatcher extends Matcher {
 
     public void match() {
         MultiMappingStore multiMappings = new MultiMappingStore();
+        CompactTree srcTree = getSrcCompactTree();
+        CompactTree dstTree = getDstCompactTree();
 
-        PriorityTreeList srcs = new PriorityTreeList(src);
-        PriorityTreeList dsts = new PriorityTreeList(dst);
+        PriorityTreeList srcs = new PriorityTreeList(srcTree);
+        PriorityTreeList dsts = new PriorityTreeList(dstTree);
 
         while (srcs.peekHeight() != -1 && dsts.peekHeight() != -1) {
             while (srcs.peekHeight() != dsts.peekHeight())
                 popLarger(srcs, dsts);
 
-            List<ITree> hSrcs = srcs.pop();
-            List<ITree> hDsts = dsts.pop();
+            TIntArrayList hSrcs = srcs.pop();
+            TIntArrayList hDsts = dsts.pop();
 
             boolean[] srcMarks = new boolean[hSrcs.size()];
             boolean[] dstMarks = new boolean[hDsts.size()];
 
-            for (int i = 0; i < hSrcs.size(); i++) {
-                for (int j = 0; j < hDsts.size(); j++) {
-                    ITree src = hSrcs.get(i);
-                    ITree dst = hDsts.get(j);
-
-                    if (src.isClone(dst)) {
-                        multiMappings.link(src, dst);
-                        srcMarks[i] = true;
-                        dstMarks[j] = true;
-                    }
-                }
+            // Link in the order of a nested loop over hSrcs and hDsts
+            long[] clones = findClones(srcTree, hSrcs, dstTree, hDsts, parallelMinTrees);
+            for (long clone: clones) {
+                int i = (int) (clone / hDsts.size());
+                int j = (int) (clone % hDsts.size());
+                multiMappings.link(srcTree.getTree(hSrcs.get(i)), dstTree.getTree(hDsts.get(j)));
+                srcMarks[i] = true;
+                dstMarks[j] = true;
             }
 
             for (int i = 0; i < srcMarks.length; i++)
@@ -87,6 +104,93 @@ public abstract class SubtreeMatcher extends Matcher {
         filterMappings(multiMappings);
     }
 
+    /**
+     * Find the clones among trees of the same height. Clones have equal hashes, so trees are bucketed by hash
+     * and only compared within a bucket. Buckets are compared on the common fork-join pool when the level has
+     * at least parallelMinTrees trees.
+     *
+     * @return the pairs of clones, encoded as i * hDsts.size() + j and sorted
+     */
+    private static long[] findClones(CompactTree srcTree, TIntArrayList hSrcs,
+                                     CompactTree dstTree, TIntArrayList hDsts, int parallelMinTrees) {
+        TIntObjectHashMap<HashBucket> bucketsByHash = new TIntObjectHashMap<>();
+        for (int i = 0; i < hSrcs.size(); i++) {
+            int hash = srcTree.getHash(hSrcs.get(i));
+            HashBucket bucket = bucketsByHash.get(hash);
+            if (bucket == null) {
+                bucket = new HashBucket();
+                bucketsByHash.put(hash, bucket);
+            }
+            bucket.srcs.add(i);
+        }
+        List<HashBucket> buckets = new ArrayList<>();
+        for (int j = 0; j < hDsts.size(); j++) {
+            HashBucket bucket = bucketsByHash.get(dstTree.getHash(hDsts.get(j)));
+            if (bucket != null) {
+                if (bucket.dsts.isEmpty())
+                    buckets.add(bucket);
+                bucket.dsts.add(j);
+            }
+        }
+
+        if (hSrcs.size() + hDsts.size() >= parallelMinTrees)
+            buckets.parallelStream().forEach(bucket -> bucket.findClones(srcTree, hSrcs, dstTree, hDsts));
+        else
+            for (HashBucket bucket: buckets)
+                bucket.findClones(srcTree, hSrcs, dstTree, hDsts);
+
+        TLongArrayList clones = new TLongArrayList();
+        for (HashBucket bucket: buckets)
+            clones.addAll(bucket.clones);
+        long[] sorted = clones.toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static class HashBucket {
+
+        private final TIntArrayList srcs = new TIntArrayList(1);
+
+        private final TIntArrayList dsts = new TIntArrayList(1);
+
+        private final TLongArrayList clones = new TLongArrayList(1);
+
+        /**
+         * Being a clone is an equivalence relation, so the destination trees are first split into classes of
+         * clones, then each source tree is compared with one representative per class rather than with every tree.
+         */
+        private void findClones(CompactTree srcTree, TIntArrayList hSrcs, CompactTree dstTree, TIntArrayList hDsts) {
+            TIntArrayList representatives = new TIntArrayList(1);
+            List<TIntArrayList> classes = new ArrayList<>();
+            for (int k = 0; k < dsts.size(); k++) {
+                int c = classOf(dstTree, hDsts.get(dsts.get(k)), dstTree, representatives);
+                if (c == -1) {
+                    representatives.add(hDsts.get(dsts.get(k)));
+                    classes.add(new TIntArrayList(1));
+                    c = classes.size() - 1;
+                }
+                classes.get(c).add(dsts.get(k));
+            }
+
+            for (int k = 0; k < srcs.size(); k++) {
+                int i = srcs.get(k);
+                int c = classOf(srcTree, hSrcs.get(i), dstTree, representatives);
+                if (c != -1) {
+                    TIntArrayList members = classes.get(c);
+                    for (int l = 0; l < members.size(); l++)
+                        clones.add((long) i * hDsts.size() + members.get(l));
+                }
+            }
+        }
+
+        private static int classOf(CompactTree tree, int n, CompactTree dstTree, TIntArrayList representatives) {
+            for (int c = 0; c < representatives.size(); c++)
+                if (tree.isClone(n, dstTree, representatives.get(c)))
+                    return c;
+            return -1;
+        }
+    }
+
     public abstract void filterMappings(MultiMappingStore mmappings);
 
     protected double sim(ITree src, ITree dst) {
@@ -107,26 +211,25 @@ public abstract class SubtreeMatcher extends Matcher {
 
     private static class PriorityTreeList {
 
-        private List<ITree>[] trees;
+        private final CompactTree tree;
+
+        private TIntArrayList[] trees;
 
         private int maxHeight;
 
         private int currentIdx;
 
-        @SuppressWarnings("unchecked")
-        public PriorityTreeList(ITree tree) {
-            int listSize = tree.getHeight() - MIN_HEIGHT + 1;
+        public PriorityTreeList(CompactTree tree) {
+            this.tree = tree;
+            int rootHeight = tree.getHeight(0);
+            int listSize = rootHeight - MIN_HEIGHT + 1;
             if (listSize < 0)
                 listSize = 0;
             if (listSize == 0)
                 currentIdx = -1;
-            trees = (List<ITree>[]) new ArrayList[listSize];
-            maxHeight = tree.getHeight();
-            addTree(tree);
-        }
-
-        private int idx(ITree tree) {
-            return idx(tree.getHeight());
+            trees = new TIntArrayList[listSize];
+            maxHeight = rootHeight;
+            addTree(0);
         }
 
         private int idx(int height) {
@@ -137,35 +240,35 @@ public abstract class SubtreeMatcher extends Matcher {
             return maxHeight - idx;
         }
 
-        private void addTree(ITree tree) {
-            if (tree.getHeight() >= MIN_HEIGHT) {
-                int idx = idx(tree);
-                if (trees[idx] == null) trees[idx] = new ArrayList<>();
-                trees[idx].add(tree);
+        private void addTree(int n) {
+            if (tree.getHeight(n) >= MIN_HEIGHT) {
+                int idx = idx(tree.getHeight(n));
+                if (trees[idx] == null) trees[idx] = new TIntArrayList();
+                trees[idx].add(n);
             }
         }
 
-        public List<ITree> open() {
-            List<ITree> pop = pop();
+        public TIntArrayList open() {
+            TIntArrayList pop = pop();
             if (pop != null) {
-                for (ITree tree: pop) open(tree);
+                for (int i = 0; i < pop.size(); i++) open(pop.get(i));
                 updateHeight();
                 return pop;
             } else return null;
         }
 
-        public List<ITree> pop() {
+        public TIntArrayList pop() {
             if (currentIdx == -1)
                 return null;
             else {
-                List<ITree> pop = trees[currentIdx];
+                TIntArrayList pop = trees[currentIdx];
                 trees[currentIdx] = null;
                 return pop;
             }
         }
 
-        public void open(ITree tree) {
-            for (ITree c: tree.getChildren()) addTree(c);
+        public void open(int n) {
+            for (int c = tree.getFirstChild(n); c != CompactTree.NONE; c = tree.getNextSibling(c)) addTree(c);
         }
 
         public int peekHeight() {
@@ -1,28 +1,65 @@
 package com.github.gumtreediff.matchers.optimal;
 
+import com.github.gumtreediff.matchers.AbstractMatchStats;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.Register;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.Pair;
+import com.google.gson.stream.JsonWriter;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongDoubleHashMap;
 
 import javax.xml.bind.DatatypeConverter;
+import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by Geoff on 03/03/2016.
  */
 @Register(id = "memo")
 public class MemoisedMatcher extends Matcher {
+    // Largest number of edits kept in the memo table, 0 for no limit; evicted edits are recomputed on demand
+    private static int MAX_MEMO_ENTRIES = 0;
+
+    // Smallest product of the tree sizes for which the edits are computed in parallel, with an unbounded memo
+    private static long PARALLEL_MIN_CELLS = 262144;
+
+    // Smallest product of the subtree sizes for which the edits of the pairs of children are forked
+    private static final int FORK_MIN_CELLS = 1024;
+
+    static {
+        try {
+            PARALLEL_MIN_CELLS = Long.parseLong(System.getProperty("gumtree.match.memo.parallel", "262144"));
+        } catch (NumberFormatException e) {
+            PARALLEL_MIN_CELLS = 262144;
+        }
+
+        try {
+            MAX_MEMO_ENTRIES = Integer.parseInt(System.getProperty("gumtree.match.memo.max_entries", "0"));
+        } catch (NumberFormatException e) {
+            MAX_MEMO_ENTRIES = 0;
+        }
+    }
+
     private static class TreeHashEntry {
         private String sha256Hex;
         private int index;
-        private int featureVector[] = null;
+        // Sparse feature vector: the counts of the unique hashes of the subtree, sorted by hash index
+        private int featureIndices[] = null;
+        private int featureCounts[] = null;
         private int weight = 0;
 
         private TreeHashEntry(String sha256Hex, int index) {
@@ -30,23 +67,38 @@ public class MemoisedMatcher extends Matcher {
             this.index = index;
         }
 
-        private void featuresInit(int N) {
-            featureVector = new int[N];
-            featureVector[index] = 1;
+        private void featuresInit(List<TreeHashEntry> children) {
+            TIntIntHashMap counts = new TIntIntHashMap();
+            counts.put(index, 1);
             weight = 1;
-        }
-
-        private void featuresAccum(TreeHashEntry src) {
-            for (int i = 0; i < src.featureVector.length; i++) {
-                featureVector[i] += src.featureVector[i];
+            for (TreeHashEntry child: children) {
+                for (int i = 0; i < child.featureIndices.length; i++) {
+                    counts.adjustOrPutValue(child.featureIndices[i], child.featureCounts[i], child.featureCounts[i]);
+                }
+                weight += child.weight;
+            }
+            featureIndices = counts.keys();
+            Arrays.sort(featureIndices);
+            featureCounts = new int[featureIndices.length];
+            for (int i = 0; i < featureIndices.length; i++) {
+                featureCounts[i] = counts.get(featureIndices[i]);
             }
-            weight += src.weight;
         }
 
         private double featureDistanceTo(TreeHashEntry x) {
             double dist = 0.0;
-            for (int i = 0; i < featureVector.length; i++) {
-                dist += Math.abs(featureVector[i] - x.featureVector[i]);
+            int i = 0, j = 0;
+            while (i < featureIndices.length || j < x.featureIndices.length) {
+                if (j == x.featureIndices.length
+                        || (i < featureIndices.length && featureIndices[i] < x.featureIndices[j])) {
+                    dist += featureCounts[i++];
+                }
+                else if (i == featureIndices.length || x.featureIndices[j] < featureIndices[i]) {
+                    dist += x.featureCounts[j++];
+                }
+                else {
+                    dist += Math.abs(featureCounts[i++] - x.featureCounts[j++]);
+                }
             }
             return dist;
         }
@@ -55,9 +107,9 @@ public class MemoisedMatcher extends Matcher {
     private static class TreeHashes {
         private HashMap<String, TreeHashEntry> uniqueHashes = new HashMap<>();
         private IdentityHashMap<ITree, TreeHashEntry> hashes = new IdentityHashMap<>();
-        private double distanceMatrix[];
+        // Feature distances computed so far, keyed by the pair of hash indices, smallest first
+        private TLongDoubleHashMap distances = new TLongDoubleHashMap();
         private int numHashes = 0;
-        private int distCount = 0;
 
         private TreeHashes() {
         }
@@ -104,13 +156,13 @@ public class MemoisedMatcher extends Matcher {
 
         private TreeHashEntry buildFeatureVectorFor(ITree node) {
             TreeHashEntry entry = hashFor(node);
-            if (entry.featureVector == null) {
-                entry.featuresInit(uniqueHashes.size());
-
-                for (ITree child: node.getChildren()) {
-                    TreeHashEntry x = buildFeatureVectorFor(child);
-                    entry.featuresAccum(x);
+            if (entry.featureIndices == null) {
+                List<ITree> children = node.getChildren();
+                TreeHashEntry childEntries[] = new TreeHashEntry[children.size()];
+                for (int i = 0; i < childEntries.length; i++) {
+                    childEntries[i] = buildFeatureVectorFor(children.get(i));
                 }
+                entry.featuresInit(Arrays.asList(childEntries));
             }
             return entry;
         }
@@ -123,10 +175,6 @@ public class MemoisedMatcher extends Matcher {
                 buildFeatureVectorFor(tree);
             }
             numHashes = uniqueHashes.size();
-            distanceMatrix = new double[numHashes*numHashes];
-            for (int i = 0; i < distanceMatrix.length; i++) {
-                distanceMatrix[i] = -1.0;
-            }
         }
 
         public int numUniqueHashes() {
@@ -134,67 +182,223 @@ public class MemoisedMatcher extends Matcher {
         }
 
         private double featureDistance(TreeHashEntry a, TreeHashEntry b) {
-            int i = a.index * numHashes + b.index;
-            int i2 = b.index * numHashes + a.index;
-            if (distanceMatrix[i] == -1.0) {
-                distanceMatrix[i2] = distanceMatrix[i] = a.featureDistanceTo(b);
-                distCount += 1;
+            long key = pairKey(Math.min(a.index, b.index), Math.max(a.index, b.index));
+            synchronized (distances) {
+                if (distances.containsKey(key)) {
+                    return distances.get(key);
+                }
             }
-            return distanceMatrix[i];
+            double dist = a.featureDistanceTo(b);
+            synchronized (distances) {
+                distances.put(key, dist);
+            }
+            return dist;
+        }
+
+        private int distCount() {
+            synchronized (distances) {
+                return distances.size();
+            }
+        }
+
+        private long totalDistCount() {
+            return ((long)numHashes * numHashes + numHashes) / 2;
         }
+    }
+
+    private static long pairKey(int indexA, int indexB) {
+        return ((long)indexA << 32) | (indexB & 0xffffffffL);
+    }
 
-        private double featureDistance(ITree nodeA, ITree nodeB) {
-            return featureDistance(hashFor(nodeA), hashFor(nodeB));
+    /**
+     * Counters of a match: the feature distances and the edits computed, and the use of the memo table.
+     */
+    public static class MemoStats extends AbstractMatchStats {
+        private int featureVectorLength;
+        private int distCount;
+        private long totalDistCount;
+        private int editCount;
+        private int memoHits;
+        private int memoEvictions;
+        private int mappingCount;
+        private double editDistance;
+
+        public int getFeatureVectorLength() {
+            return featureVectorLength;
         }
 
-        private int totalDistCount() {
-            return (numHashes * numHashes + numHashes) / 2;
+        public int getDistCount() {
+            return distCount;
+        }
+
+        public long getTotalDistCount() {
+            return totalDistCount;
+        }
+
+        public int getEditCount() {
+            return editCount;
+        }
+
+        public int getMemoHits() {
+            return memoHits;
+        }
+
+        public int getMemoEvictions() {
+            return memoEvictions;
+        }
+
+        public int getMappingCount() {
+            return mappingCount;
+        }
+
+        public double getEditDistance() {
+            return editDistance;
+        }
+
+        @Override
+        public void asJson(JsonWriter jsonOut) throws IOException {
+            jsonOut.beginObject();
+            jsonOut.name("feature_vector_length").value(featureVectorLength);
+            jsonOut.name("feature_distances").value(distCount);
+            jsonOut.name("total_feature_distances").value(totalDistCount);
+            jsonOut.name("edits").value(editCount);
+            jsonOut.name("memo_hits").value(memoHits);
+            jsonOut.name("memo_evictions").value(memoEvictions);
+            jsonOut.name("mappings").value(mappingCount);
+            jsonOut.name("edit_distance").value(editDistance);
+            jsonOut.endObject();
+        }
+
+        @Override
+        public String toString() {
+            return "Computed " + distCount + "/" + totalDistCount
+                    + " feature distances, with feature vectors of length " + featureVectorLength
+                    + ", and " + editCount + " edits (" + memoHits + " memo hits, " + memoEvictions
+                    + " evictions); mapped " + mappingCount + " nodes with distance " + editDistance;
         }
     }
 
 
-    private class Edit {
+    // The matched children are kept by index, the edits of the matched pairs being looked up in the memo
+    private static class Edit {
+        private static final int NO_MATCHES[] = new int[0];
+
         private double editDistance;
-        private ArrayList<Integer> matchesA, matchesB;
-        private ArrayList<Edit> matchEdits;
+        private int matchesA[], matchesB[];
 
-        private Edit(double editDistance, ArrayList<Integer> matchesA, ArrayList<Integer> matchesB,
-                     ArrayList<Edit> matchEdits) {
+        private Edit(double editDistance, int matchesA[], int matchesB[]) {
             this.editDistance = editDistance;
             this.matchesA = matchesA;
             this.matchesB = matchesB;
-            this.matchEdits = matchEdits;
         }
     }
 
-    private Edit[][] editDistanceMemo;
+    private static class EditMemo extends LinkedHashMap<Long, Edit> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+        private final MemoStats stats;
+
+        private EditMemo(int maxEntries, MemoStats stats) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+            this.stats = stats;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Edit> eldest) {
+            if (maxEntries > 0 && size() > maxEntries) {
+                stats.memoEvictions += 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // Computes the edit of a pair of subtrees; the task of each pair is shared through the parallel memo
+    private final class EditTask extends RecursiveTask<Edit> {
+        private static final long serialVersionUID = 1L;
+
+        private final ITree a, b;
+
+        private EditTask(ITree a, ITree b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected Edit compute() {
+            return computeEdit(a, b);
+        }
+    }
+
+    // Edits of pairs of unique subtrees, keyed by the pair of hash indices; only the pairs queried are stored
+    private EditMemo editDistanceMemo;
+    // Replaces editDistanceMemo when the edits are computed in parallel
+    private ConcurrentHashMap<Long, EditTask> parallelMemo;
     private TreeHashes hashes = new TreeHashes();
+    private MemoStats stats = new MemoStats();
+    private AtomicInteger editCount = new AtomicInteger(), memoHits = new AtomicInteger();
+    private final int maxMemoEntries;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private long parallelMinCells = PARALLEL_MIN_CELLS;
+    private long forkMinCells = FORK_MIN_CELLS;
 
     public MemoisedMatcher(ITree src, ITree dst, MappingStore store) {
+        this(src, dst, store, MAX_MEMO_ENTRIES);
+    }
+
+    public MemoisedMatcher(ITree src, ITree dst, MappingStore store, int maxMemoEntries) {
         super(src, dst, store);
+        this.maxMemoEntries = maxMemoEntries;
+    }
+
+    /**
+     * Sets the pool on which the edits are computed in parallel, the smallest product of the tree sizes for which
+     * they are, and the smallest product of the subtree sizes for which the edits of the children are forked. The
+     * defaults are the common pool, gumtree.match.memo.parallel and 1024. Only an unbounded memo is parallel.
+     */
+    public void setParallelism(ForkJoinPool pool, long parallelMinCells, long forkMinCells) {
+        this.pool = pool;
+        this.parallelMinCells = parallelMinCells;
+        this.forkMinCells = forkMinCells;
     }
 
     @Override
     public void match() {
         hashes.addTrees(new ITree[] {src, dst});
 
-        // Create the edit distance memo table
-        int n = hashes.numUniqueHashes();
-        editDistanceMemo = new Edit[n][];
-        for (int i = 0; i < n; i++) {
-            editDistanceMemo[i] = new Edit[n];
+        // Compute edit distance for roots; the bounded memo is not shared between threads
+        Edit e;
+        if (maxMemoEntries <= 0 && (long)src.getSize() * dst.getSize() >= parallelMinCells
+                && pool.getParallelism() > 1) {
+            parallelMemo = new ConcurrentHashMap<>();
+            EditTask root = new EditTask(src, dst);
+            parallelMemo.put(pairKey(hashes.hashFor(src).index, hashes.hashFor(dst).index), root);
+            editCount.incrementAndGet();
+            e = pool.invoke(root);
+        }
+        else {
+            editDistanceMemo = new EditMemo(maxMemoEntries, stats);
+            e = editDist(src, dst);
         }
-
-        // Compute edit distance for roots
-        System.out.println("src.getSize()=" + src.getSize());
-        System.out.println("dst.getSize()=" + dst.getSize());
-        Edit e = editDist(src, dst);
 
         int mappingCount = generateMappings(src, dst, e);
 
-        System.out.println("Computed " + hashes.distCount + "/" + hashes.totalDistCount() + " feature distances, with feature vectors of length " + hashes.numHashes);
-        System.out.println("Mapped " + mappingCount + " nodes with distance " + e.editDistance);
+        stats.editCount = editCount.get();
+        stats.memoHits = memoHits.get();
+        stats.featureVectorLength = hashes.numHashes;
+        stats.distCount = hashes.distCount();
+        stats.totalDistCount = hashes.totalDistCount();
+        stats.mappingCount = mappingCount;
+        stats.editDistance = e.editDistance;
+        mappings.setMatchStats(stats);
+        editDistanceMemo = null;
+        parallelMemo = null;
+    }
 
+    public MemoStats getStats() {
+        return stats;
     }
 
     private int generateMappings(ITree a, ITree b, Edit edit) {
@@ -203,10 +407,10 @@ public class MemoisedMatcher extends Matcher {
             addMapping(a, b);
             mappingCount += 1;
         }
-        for (int i = 0; i < edit.matchesA.size(); i++) {
-            mappingCount += generateMappings(a.getChild(edit.matchesA.get(i)),
-                                             b.getChild(edit.matchesB.get(i)),
-                                             edit.matchEdits.get(i));
+        for (int i = 0; i < edit.matchesA.length; i++) {
+            ITree childA = a.getChild(edit.matchesA[i]);
+            ITree childB = b.getChild(edit.matchesB[i]);
+            mappingCount += generateMappings(childA, childB, editDist(childA, childB));
         }
         return mappingCount;
     }
@@ -220,87 +424,134 @@ public class MemoisedMatcher extends Matcher {
     }
 
     private Edit editDist(ITree a, ITree b) {
+        long key = pairKey(hashes.hashFor(a).index, hashes.hashFor(b).index);
+        if (parallelMemo != null) {
+            EditTask task = parallelMemo.get(key);
+            if (task == null) {
+                EditTask created = new EditTask(a, b);
+                task = parallelMemo.putIfAbsent(key, created);
+                if (task == null) {
+                    editCount.incrementAndGet();
+                    return created.invoke();
+                }
+            }
+            // The pair is computed, or being computed by another thread
+            memoHits.incrementAndGet();
+            return task.join();
+        }
+        Edit edit = editDistanceMemo.get(key);
+        if (edit != null) {
+            memoHits.incrementAndGet();
+        }
+        else {
+            edit = computeEdit(a, b);
+            editDistanceMemo.put(key, edit);
+            editCount.incrementAndGet();
+        }
+        return edit;
+    }
+
+    // Starts the computation of the edits of the pairs of children that nobody has claimed yet, and waits for them
+    private void forkChildEdits(List<ITree> cA, List<ITree> cB) {
+        List<EditTask> tasks = new ArrayList<>();
+        for (ITree childA: cA) {
+            for (ITree childB: cB) {
+                long key = pairKey(hashes.hashFor(childA).index, hashes.hashFor(childB).index);
+                if (!parallelMemo.containsKey(key)) {
+                    EditTask task = new EditTask(childA, childB);
+                    if (parallelMemo.putIfAbsent(key, task) == null) {
+                        editCount.incrementAndGet();
+                        tasks.add(task);
+                    }
+                }
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    private Edit computeEdit(ITree a, ITree b) {
         TreeHashEntry ha = hashes.hashFor(a);
         TreeHashEntry hb = hashes.hashFor(b);
-        int aKey = ha.index;
-        int bKey = hb.index;
-        Edit edit = editDistanceMemo[aKey][bKey];
-        if (edit == null) {
-            List<ITree> cA = a.getChildren();
-            List<ITree> cB = b.getChildren();
-            int nA = cA.size();
-            int nB = cB.size();
-            ArrayList<Integer> matchesA = new ArrayList<>(), matchesB = new ArrayList<>();
-            ArrayList<Edit> matchEdits = new ArrayList<>();
-            double dist = a.getType() == b.getType() ? 0.0 : 1.0;
-            if (nA == 0 && nB == 0) {
-                // Nothing to do
+        List<ITree> cA = a.getChildren();
+        List<ITree> cB = b.getChildren();
+        int nA = cA.size();
+        int nB = cB.size();
+        int matchesA[] = Edit.NO_MATCHES, matchesB[] = Edit.NO_MATCHES;
+        double dist = a.getType() == b.getType() ? 0.0 : 1.0;
+        if (nA == 0 && nB == 0) {
+            // Nothing to do
+        }
+        else if (nA != 0 && nB == 0) {
+            // All nodes in A deleted
+            for (int i = 0; i < nA; i++) {
+                dist += cA.get(i).getSize();
             }
-            else if (nA != 0 && nB == 0) {
-                // All nodes in A deleted
-                for (int i = 0; i < nA; i++) {
-                    dist += cA.get(i).getSize();
-                }
+        }
+        else if (nA == 0 && nB != 0) {
+            // All nodes in B inserted
+            for (int j = 0; j < nB; j++) {
+                dist += cB.get(j).getSize();
             }
-            else if (nA == 0 && nB != 0) {
-                // All nodes in B inserted
-                for (int j = 0; j < nB; j++) {
-                    dist += cB.get(j).getSize();
-                }
+        }
+        else {
+            if (parallelMemo != null && (long)ha.weight * hb.weight >= forkMinCells) {
+                forkChildEdits(cA, cB);
             }
-            else {
-                int P = nA + 1, Q = nB + 1;
-                double distMatrix[] = new double[P*Q];
-                int opMatrix[] = new int[P*Q];
-                for (int i = 1; i <= nA; i++) {
-                    distMatrix[i*Q+0] = distMatrix[(i-1)*Q+0] + cA.get(i-1).getSize();
-                    opMatrix[i*Q+0] = OP_DEL;
-                }
+            int P = nA + 1, Q = nB + 1;
+            double distMatrix[] = new double[P*Q];
+            int opMatrix[] = new int[P*Q];
+            for (int i = 1; i <= nA; i++) {
+                distMatrix[i*Q+0] = distMatrix[(i-1)*Q+0] + cA.get(i-1).getSize();
+                opMatrix[i*Q+0] = OP_DEL;
+            }
+            for (int j = 1; j <= nB; j++) {
+                distMatrix[0*Q+j] = distMatrix[0*Q+(j-1)] + cB.get(j-1).getSize();
+                opMatrix[0*Q+j] = OP_INS;
+            }
+            for (int i = 1; i <= nA; i++) {
                 for (int j = 1; j <= nB; j++) {
-                    distMatrix[0*Q+j] = distMatrix[0*Q+(j-1)] + cB.get(j-1).getSize();
-                    opMatrix[0*Q+j] = OP_INS;
+                    double delCost = distMatrix[(i-1)*Q+j] + (double)cA.get(i-1).getSize();
+                    double insCost = distMatrix[i*Q+(j-1)] + (double)cB.get(j-1).getSize();
+                    Edit chEdt = editDist(cA.get(i-1), cB.get(j-1));
+                    double updCost = distMatrix[(i-1)*Q+(j-1)] + chEdt.editDistance;
+
+                    double minCost = Math.min(Math.min(delCost, insCost), updCost);
+                    distMatrix[i*Q+j] = minCost;
+                    opMatrix[i*Q+j] = (delCost == minCost ? OP_DEL : 0) |
+                            (insCost == minCost ? OP_INS : 0) |
+                            (updCost == minCost ? OP_UPD : 0);
                 }
-                for (int i = 1; i <= nA; i++) {
-                    for (int j = 1; j <= nB; j++) {
-                        double delCost = distMatrix[(i-1)*Q+j] + (double)cA.get(i-1).getSize();
-                        double insCost = distMatrix[i*Q+(j-1)] + (double)cB.get(j-1).getSize();
-                        Edit chEdt = editDist(cA.get(i-1), cB.get(j-1));
-                        double updCost = distMatrix[(i-1)*Q+(j-1)] + chEdt.editDistance;
-
-                        double minCost = Math.min(Math.min(delCost, insCost), updCost);
-                        distMatrix[i*Q+j] = minCost;
-                        opMatrix[i*Q+j] = (delCost == minCost ? OP_DEL : 0) |
-                                (insCost == minCost ? OP_INS : 0) |
-                                (updCost == minCost ? OP_UPD : 0);
-                    }
+            }
+            dist += distMatrix[nA*Q+nB];
+            matchesA = new int[Math.min(nA, nB)];
+            matchesB = new int[matchesA.length];
+            int nMatches = 0;
+            int i = nA, j = nB;
+            while (!(i == 0 && j==0)) {
+                int op = opMatrix[i*Q+j];
+                if ((op & OP_UPD) != 0) {
+                    matchesA[nMatches] = i-1;
+                    matchesB[nMatches] = j-1;
+                    nMatches += 1;
+                    i -= 1;
+                    j -= 1;
                 }
-                dist += distMatrix[nA*Q+nB];
-                int i = nA, j = nB;
-                while (!(i == 0 && j==0)) {
-                    int op = opMatrix[i*Q+j];
-                    if ((op & OP_UPD) != 0) {
-                        Edit chEdt = editDist(cA.get(i-1), cB.get(j-1));
-                        matchesA.add(i-1);
-                        matchesB.add(j-1);
-                        matchEdits.add(chEdt);
-                        i -= 1;
-                        j -= 1;
-                    }
-                    else if ((op & OP_INS) != 0) {
-                        j -= 1;
-                    }
-                    else if ((op & OP_DEL) != 0) {
-                        i -= 1;
-                    }
+                else if ((op & OP_INS) != 0) {
+                    j -= 1;
                 }
-                double featDist = hashes.featureDistance(ha, hb) * 2.0;
-                double basicDist = dist;
-                dist = basicDist * 0.5 + featDist * 0.5;
+                else if ((op & OP_DEL) != 0) {
+                    i -= 1;
+                }
+            }
+            if (nMatches < matchesA.length) {
+                matchesA = Arrays.copyOf(matchesA, nMatches);
+                matchesB = Arrays.copyOf(matchesB, nMatches);
             }
-            edit = new Edit(dist, matchesA, matchesB, matchEdits);
-            editDistanceMemo[aKey][bKey] = edit;
+            double featDist = hashes.featureDistance(ha, hb) * 2.0;
+            double basicDist = dist;
+            dist = basicDist * 0.5 + featDist * 0.5;
         }
-        return edit;
+        return new Edit(dist, matchesA, matchesB);
     }
 
 
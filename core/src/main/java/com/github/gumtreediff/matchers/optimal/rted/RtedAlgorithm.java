@@ -15,9 +15,13 @@
 
 package com.github.gumtreediff.matchers.optimal.rted;
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.github.gumtreediff.tree.ITree;
 
@@ -63,6 +67,14 @@ public class RtedAlgorithm {
 													// node)
 	private static final byte PRE2_POST = 15; // preorder to postorder
 
+	// Strategies of at least this many pairs of nodes are computed on the
+	// common fork-join pool
+	private static final int PARALLEL_MIN_CELLS = Integer.parseInt(System
+			.getProperty("gumtree.match.rted.parallel", "262144"));
+
+	// Subtrees with fewer pairs of nodes are not split into parallel tasks
+	private static final int STRATEGY_GRAIN = 16384;
+
 	// trees
 	private InfoTree it1;
 	private InfoTree it2;
@@ -70,7 +82,8 @@ public class RtedAlgorithm {
 	private int size2;
 	private LabelDictionary ld;
 
-	// arrays
+	// arrays, kept and grown across calls: only the first size1 rows and
+	// size2 columns are meaningful
 	private int[][] str; // strategy array
 	private double[][] delta; // an array for storing the distances between
 								// every pair of subtrees
@@ -78,8 +91,10 @@ public class RtedAlgorithm {
 								// delta(F,G)-delta(F°,G°) for every pair of
 								// subtrees, which is at most 1
 	private int[][] ij; // stores a forest preorder for given i and j
-	private long[][][] costV;
-	private long[][] costW;
+	private long[][][] costV; // costs of the strategies of the subtrees of
+								// the left tree; once the row of a node is
+								// done, it holds the contribution of the node
+								// to the costs of its parent
 	private double[][] t; // T array from Demaine's algorithm, stores
 							// delta(Fv,Gij), v on heavy path. Values are
 							// written to t.
@@ -90,6 +105,9 @@ public class RtedAlgorithm {
 	private double[][] tTMP;
 	private double[][] s;
 	private double[] q;
+	private double[][] forestdist; // forest distances of the single-path
+									// functions and of the edit mapping
+	private double[][] treedist; // tree distances of the edit mapping
 	
 	private double da, db, dc;
 	private int previousStrategy;
@@ -97,6 +115,11 @@ public class RtedAlgorithm {
 										// LEFT,RIGHT,HEAVY,SUM
 	private double costDel, costIns, costMatch; // edit operations costs
 
+	// Pool and thresholds of the parallel strategy computation
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private long parallelMinCells = PARALLEL_MIN_CELLS;
+	private long strategyGrain = STRATEGY_GRAIN;
+
 	/**
 	 * The constructor. Parameters passed are the edit operation costs.
 	 * 
@@ -119,7 +142,6 @@ public class RtedAlgorithm {
 	 */
 	public double nonNormalizedTreeDist(ITree t1, ITree t2) {
 		init(t1, t2);
-		str = new int[size1][size2];
 		computeOptimalStrategy();
 		return computeDistUsingStrArray(it1, it2);
 	}
@@ -146,11 +168,19 @@ public class RtedAlgorithm {
 		it2 = new InfoTree(t2, ld);
 		size1 = it1.getSize();
 		size2 = it2.getSize();
-		ij = new int[Math.max(size1, size2)][Math.max(size1, size2)];
-		delta = new double[size1][size2];
-		deltaBit = new byte[size1][size2];
-		costV = new long[3][size1][size2];
-		costW = new long[3][size2];
+		previousStrategy = LEFT;
+		ij = grow(ij, Math.max(size1, size2), Math.max(size1, size2));
+		delta = grow(delta, size1, size2);
+		for (int x = 0; x < size1; x++) {
+			Arrays.fill(delta[x], 0, size2, 0);
+		}
+		deltaBit = grow(deltaBit, size1, size2);
+		if (costV == null) {
+			costV = new long[3][][];
+		}
+		for (int k = LEFT; k <= HEAVY; k++) {
+			costV[k] = grow(costV[k], size1, size2);
+		}
 
 		// Calculate delta between every leaf in G (empty tree) and all the
 		// nodes in F.
@@ -193,16 +223,41 @@ public class RtedAlgorithm {
 	 * A method for computing and storing the optimal strategy
 	 */
 	public void computeOptimalStrategy() {
+		str = grow(str, size1, size2);
+		if ((long) size1 * size2 >= parallelMinCells) {
+			pool.invoke(new StrategyTask(size1 - 1));
+		} else {
+			computeStrategyRows(0, size1 - 1, new long[3][size2]);
+		}
+	}
+
+	/**
+	 * Computes the strategies of the nodes first to last of the left tree, in
+	 * postorder.
+	 */
+	private void computeStrategyRows(int first, int last, long[][] costW) {
+		for (int v = first; v <= last; v++) {
+			computeStrategyRow(v, costW);
+		}
+	}
+
+	/**
+	 * Computes the strategies of node v of the left tree against all the nodes
+	 * of the right tree. The rows of the children of v must be done: v only
+	 * reads their rows and writes its own, so that the rows of disjoint
+	 * subtrees can be computed in parallel.
+	 * 
+	 * @param v
+	 * @param costW
+	 *            scratch array of the costs of the right tree
+	 */
+	private void computeStrategyRow(int v, long[][] costW) {
 		long heavyMin, revHeavyMin, leftMin, revLeftMin, rightMin, revRightMin;
 		long min = -1;
 		int strategy = -1;
-		int parent1 = -1;
 		int parent2 = -1;
-		boolean[] nodeTypeLeft1 = it1.nodeType[LEFT];
 		boolean[] nodeTypeLeft2 = it2.nodeType[LEFT];
-		boolean[] nodeTypeRigt1 = it1.nodeType[RIGHT];
 		boolean[] nodeTypeRight2 = it2.nodeType[RIGHT];
-		boolean[] nodeTypeHeavy1 = it1.nodeType[HEAVY];
 		boolean[] nodeTypeHeavy2 = it2.nodeType[HEAVY];
 		int[] post2size1 = it1.info[POST2_SIZE];
 		int[] post2size2 = it2.info[POST2_SIZE];
@@ -212,84 +267,135 @@ public class RtedAlgorithm {
 		int[] post2krSum2 = it2.info[POST2_KR_SUM];
 		int[] post2revkrSum1 = it1.info[POST2_REV_KR_SUM];
 		int[] post2revkrSum2 = it2.info[POST2_REV_KR_SUM];
-		int[] post2parent1 = it1.info[POST2_PARENT];
 		int[] post2parent2 = it2.info[POST2_PARENT];
-
-		str = new int[size1][size2];
+		long[] costVLeft = costV[LEFT][v];
+		long[] costVRight = costV[RIGHT][v];
+		long[] costVHeavy = costV[HEAVY][v];
+		int[] strV = str[v];
+
+		// sum the contributions of the children of v, the subtree of a node
+		// being contiguous in postorder
+		Arrays.fill(costVLeft, 0, size2, 0);
+		Arrays.fill(costVRight, 0, size2, 0);
+		Arrays.fill(costVHeavy, 0, size2, 0);
+		for (int c = v - 1; c > v - post2size1[v]; c -= post2size1[c]) {
+			for (int k = LEFT; k <= HEAVY; k++) {
+				long[] costVK = costV[k][v];
+				long[] costCK = costV[k][c];
+				for (int w = 0; w < size2; w++) {
+					costVK[w] += costCK[w];
+				}
+			}
+		}
 
 		// v represents nodes of left input tree in postorder
 		// w represents nodes of right input tree in postorder
-		for (int v = 0; v < size1; v++) {
-			Arrays.fill(costW[0], 0);
-			Arrays.fill(costW[1], 0);
-			Arrays.fill(costW[2], 0);
-			for (int w = 0; w < size2; w++) {
-				if (post2size2[w] == 1) {
-					// put zeros into arrays
-					costW[LEFT][w] = 0;
-					costW[RIGHT][w] = 0;
-					costW[HEAVY][w] = 0;
-				}
-				if (post2size1[v] == 1) {
-					// put zeros into arrays
-					costV[LEFT][v][w] = 0;
-					costV[RIGHT][v][w] = 0;
-					costV[HEAVY][v][w] = 0;
-				}
+		Arrays.fill(costW[0], 0);
+		Arrays.fill(costW[1], 0);
+		Arrays.fill(costW[2], 0);
+		for (int w = 0; w < size2; w++) {
+			if (post2size2[w] == 1) {
+				// put zeros into arrays
+				costW[LEFT][w] = 0;
+				costW[RIGHT][w] = 0;
+				costW[HEAVY][w] = 0;
+			}
 
-				// TODO: some things below may be put to outer loop
-
-				// count the minimum + get the strategy
-				heavyMin = (long) post2size1[v] * (long) post2descSum2[w]
-						+ costV[HEAVY][v][w];
-				revHeavyMin = (long) post2size2[w] * (long) post2descSum1[v]
-						+ costW[HEAVY][w];
-
-				leftMin = (long) post2size1[v] * (long) post2krSum2[w]
-						+ costV[LEFT][v][w];
-				revLeftMin = (long) post2size2[w] * (long) post2krSum1[v]
-						+ costW[LEFT][w];
-
-				rightMin = (long) post2size1[v] * (long) post2revkrSum2[w]
-						+ costV[RIGHT][v][w];
-				revRightMin = (long) post2size2[w] * (long) post2revkrSum1[v]
-						+ costW[RIGHT][w];
-
-				long[] mins = { leftMin, rightMin, heavyMin, Long.MAX_VALUE,
-						revLeftMin, revRightMin, revHeavyMin };
-
-				min = leftMin;
-				strategy = 0;
-				for (int i = 1; i <= 6; i++) {
-					if (mins[i] < min) {
-						min = mins[i];
-						strategy = i;
-					}
-				}
+			// count the minimum + get the strategy
+			heavyMin = (long) post2size1[v] * (long) post2descSum2[w]
+					+ costVHeavy[w];
+			revHeavyMin = (long) post2size2[w] * (long) post2descSum1[v]
+					+ costW[HEAVY][w];
+
+			leftMin = (long) post2size1[v] * (long) post2krSum2[w]
+					+ costVLeft[w];
+			revLeftMin = (long) post2size2[w] * (long) post2krSum1[v]
+					+ costW[LEFT][w];
+
+			rightMin = (long) post2size1[v] * (long) post2revkrSum2[w]
+					+ costVRight[w];
+			revRightMin = (long) post2size2[w] * (long) post2revkrSum1[v]
+					+ costW[RIGHT][w];
+
+			// first minimum in the order LEFT, RIGHT, HEAVY, REVLEFT,
+			// REVRIGHT, REVHEAVY
+			min = leftMin;
+			strategy = LEFT;
+			if (rightMin < min) {
+				min = rightMin;
+				strategy = RIGHT;
+			}
+			if (heavyMin < min) {
+				min = heavyMin;
+				strategy = HEAVY;
+			}
+			if (revLeftMin < min) {
+				min = revLeftMin;
+				strategy = REVLEFT;
+			}
+			if (revRightMin < min) {
+				min = revRightMin;
+				strategy = REVRIGHT;
+			}
+			if (revHeavyMin < min) {
+				min = revHeavyMin;
+				strategy = REVHEAVY;
+			}
+
+			// store the strategy for the minimal cost
+			strV[w] = strategy;
 
-				// store the strategy for the minimal cost
-				str[v][w] = strategy;
-
-				// fill the cost arrays
-				parent1 = post2parent1[v];
-				if (parent1 != -1) {
-					costV[HEAVY][parent1][w] += nodeTypeHeavy1[v] ? costV[HEAVY][v][w]
-							: min;
-					costV[RIGHT][parent1][w] += nodeTypeRigt1[v] ? costV[RIGHT][v][w]
-							: min;
-					costV[LEFT][parent1][w] += nodeTypeLeft1[v] ? costV[LEFT][v][w]
-							: min;
+			// turn the costs of v into its contribution to its parent
+			if (it1.info[POST2_PARENT][v] != -1) {
+				if (!it1.nodeType[HEAVY][v]) {
+					costVHeavy[w] = min;
 				}
-				parent2 = post2parent2[w];
-				if (parent2 != -1) {
-					costW[HEAVY][parent2] += nodeTypeHeavy2[w] ? costW[HEAVY][w]
-							: min;
-					costW[LEFT][parent2] += nodeTypeLeft2[w] ? costW[LEFT][w]
-							: min;
-					costW[RIGHT][parent2] += nodeTypeRight2[w] ? costW[RIGHT][w]
-							: min;
+				if (!it1.nodeType[RIGHT][v]) {
+					costVRight[w] = min;
 				}
+				if (!it1.nodeType[LEFT][v]) {
+					costVLeft[w] = min;
+				}
+			}
+			parent2 = post2parent2[w];
+			if (parent2 != -1) {
+				costW[HEAVY][parent2] += nodeTypeHeavy2[w] ? costW[HEAVY][w]
+						: min;
+				costW[LEFT][parent2] += nodeTypeLeft2[w] ? costW[LEFT][w]
+						: min;
+				costW[RIGHT][parent2] += nodeTypeRight2[w] ? costW[RIGHT][w]
+						: min;
+			}
+		}
+	}
+
+	/**
+	 * Computes the strategies of the subtree of a node of the left tree, the
+	 * subtrees of its children in parallel.
+	 */
+	private final class StrategyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int v;
+
+		private StrategyTask(int v) {
+			this.v = v;
+		}
+
+		@Override
+		protected void compute() {
+			int size = it1.info[POST2_SIZE][v];
+			if ((long) size * size2 < strategyGrain) {
+				computeStrategyRows(v - size + 1, v, new long[3][size2]);
+				return;
+			}
+			List<StrategyTask> children = new ArrayList<StrategyTask>();
+			for (int c = v - 1; c > v - size; c -= it1.info[POST2_SIZE][c]) {
+				children.add(new StrategyTask(c));
 			}
+			invokeAll(children);
+			computeStrategyRow(v, new long[3][size2]);
 		}
 	}
 
@@ -474,7 +580,7 @@ public class RtedAlgorithm {
 	private void treeEditDist(InfoTree it1, InfoTree it2, int i, int j) {
 		int m = i - it1.info[POST2_LLD][i] + 2;
 		int n = j - it2.info[POST2_LLD][j] + 2;
-		double[][] forestdist = new double[m][n];
+		double[][] forestdist = this.forestdist = grow(this.forestdist, m, n);
 		int ioff = it1.info[POST2_LLD][i] - 1;
 		int joff = it2.info[POST2_LLD][j] - 1;
 		boolean switched = it1.isSwitched();
@@ -534,7 +640,7 @@ public class RtedAlgorithm {
 	private void treeEditDistRev(InfoTree it1, InfoTree it2, int i, int j) {
 		int m = i - it1.info[RPOST2_RLD][i] + 2;
 		int n = j - it2.info[RPOST2_RLD][j] + 2;
-		double[][] forestdist = new double[m][n];
+		double[][] forestdist = this.forestdist = grow(this.forestdist, m, n);
 		int ioff = it1.info[RPOST2_RLD][i] - 1;
 		int joff = it2.info[RPOST2_RLD][j] - 1;
 		boolean switched = it1.isSwitched();
@@ -1030,12 +1136,25 @@ public class RtedAlgorithm {
 		this.costMatch = costMatch;
 	}
 
+	/**
+	 * Sets the pool on which the strategy is computed, the smallest number of
+	 * pairs of nodes for which it is computed in parallel, and the smallest
+	 * number of pairs of a subtree for which its children are split into
+	 * parallel tasks. The defaults are the common pool,
+	 * gumtree.match.rted.parallel and 16384.
+	 */
+	public void setParallelism(ForkJoinPool pool, long parallelMinCells, long strategyGrain) {
+		this.pool = pool;
+		this.parallelMinCells = parallelMinCells;
+		this.strategyGrain = strategyGrain;
+	}
+
 	public void setCustomStrategy(int[][] strategyArray) {
 		str = strategyArray;
 	}
 
 	public void setCustomStrategy(int strategy, boolean ifSwitch) {
-		str = new int[size1][size2];
+		str = grow(str, size1, size2);
 		if (ifSwitch) {
 			for (int i = 0; i < size1; i++) {
 				for (int j = 0; j < size2; j++) {
@@ -1045,7 +1164,7 @@ public class RtedAlgorithm {
 			}
 		} else {
 			for (int i = 0; i < size1; i++) {
-				Arrays.fill(str[i], strategy);
+				Arrays.fill(str[i], 0, size2, strategy);
 			}
 		}
 	}
@@ -1066,8 +1185,8 @@ public class RtedAlgorithm {
 	public LinkedList<int[]> computeEditMapping() {
 
 		// initialize tree and forest distance arrays
-		double[][] treedist = new double[size1 + 1][size2 + 1];
-		double[][] forestdist = new double[size1 + 1][size2 + 1];
+		double[][] treedist = this.treedist = grow(this.treedist, size1 + 1, size2 + 1);
+		double[][] forestdist = this.forestdist = grow(this.forestdist, size1 + 1, size2 + 1);
 		
 		boolean rootNodePair = true;
 
@@ -1179,4 +1298,88 @@ public class RtedAlgorithm {
 		}
 	}
 
+	/**
+	 * Drops the trees of the last computation, and the workspace if it has
+	 * more than maxCells cells per array, so that a reused instance does not
+	 * retain more than that.
+	 * 
+	 * @param maxCells
+	 */
+	public void trimWorkspace(long maxCells) {
+		it1 = null;
+		it2 = null;
+		ld = null;
+		t = null;
+		tCOPY = null;
+		tTMP = null;
+		s = null;
+		q = null;
+		if (cells(delta) > maxCells || cells(ij) > maxCells
+				|| cells(forestdist) > maxCells || cells(treedist) > maxCells) {
+			str = null;
+			delta = null;
+			deltaBit = null;
+			ij = null;
+			costV = null;
+			forestdist = null;
+			treedist = null;
+		}
+	}
+
+	private static long cells(Object[] a) {
+		if (a == null) {
+			return 0;
+		}
+		long cells = 0;
+		for (Object row : a) {
+			cells += row == null ? 0 : Array.getLength(row);
+		}
+		return cells;
+	}
+
+	// The grow methods return an array with at least the given numbers of
+	// rows and columns, reusing the given one if possible. Rows are grown
+	// separately, so that calls with tall and wide shapes do not allocate a
+	// square. The content of the returned array is undefined.
+
+	private static double[][] grow(double[][] a, int rows, int cols) {
+		a = (a == null) ? new double[rows][] : (a.length < rows ? Arrays.copyOf(a, rows) : a);
+		for (int r = 0; r < rows; r++) {
+			if (a[r] == null || a[r].length < cols) {
+				a[r] = new double[cols];
+			}
+		}
+		return a;
+	}
+
+	private static long[][] grow(long[][] a, int rows, int cols) {
+		a = (a == null) ? new long[rows][] : (a.length < rows ? Arrays.copyOf(a, rows) : a);
+		for (int r = 0; r < rows; r++) {
+			if (a[r] == null || a[r].length < cols) {
+				a[r] = new long[cols];
+			}
+		}
+		return a;
+	}
+
+	private static int[][] grow(int[][] a, int rows, int cols) {
+		a = (a == null) ? new int[rows][] : (a.length < rows ? Arrays.copyOf(a, rows) : a);
+		for (int r = 0; r < rows; r++) {
+			if (a[r] == null || a[r].length < cols) {
+				a[r] = new int[cols];
+			}
+		}
+		return a;
+	}
+
+	private static byte[][] grow(byte[][] a, int rows, int cols) {
+		a = (a == null) ? new byte[rows][] : (a.length < rows ? Arrays.copyOf(a, rows) : a);
+		for (int r = 0; r < rows; r++) {
+			if (a[r] == null || a[r].length < cols) {
+				a[r] = new byte[cols];
+			}
+		}
+		return a;
+	}
+
 }
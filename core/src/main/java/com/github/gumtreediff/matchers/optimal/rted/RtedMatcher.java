@@ -31,17 +31,30 @@ import java.util.List;
 @Register(id = "rted")
 public class RtedMatcher extends Matcher {
 
+    // Largest workspace, in cells per array, kept by the engine of a thread between invocations
+    private static final long POOLED_CELLS = Long.parseLong(
+            System.getProperty("gumtree.match.rted.pooled_cells", "1000000"));
+
+    // Engine of each thread, reusing its workspace across invocations
+    private static final ThreadLocal<RtedAlgorithm> ENGINES =
+            ThreadLocal.withInitial(() -> new RtedAlgorithm(1D, 1D, 1D));
+
     public RtedMatcher(ITree src, ITree dst, MappingStore store) {
         super(src, dst, store);
     }
 
     @Override
     public void match() {
-        RtedAlgorithm a = new RtedAlgorithm(1D, 1D, 1D);
-        a.init(src, dst);
-        a.computeOptimalStrategy();
-        a.nonNormalizedTreeDist();
-        List<int[]> arrayMappings = a.computeEditMapping();
+        RtedAlgorithm a = ENGINES.get();
+        List<int[]> arrayMappings;
+        try {
+            a.init(src, dst);
+            a.computeOptimalStrategy();
+            a.nonNormalizedTreeDist();
+            arrayMappings = a.computeEditMapping();
+        } finally {
+            a.trimWorkspace(POOLED_CELLS);
+        }
         List<ITree> srcs = TreeUtils.postOrder(src);
         List<ITree> dsts = TreeUtils.postOrder(dst);
         for (int[] m: arrayMappings) {
@@ -20,76 +20,151 @@
 
 package com.github.gumtreediff.matchers.optimal.zs;
 
+import com.github.gumtreediff.algo.LabelSimilarity;
 import com.github.gumtreediff.matchers.*;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
-import org.simmetrics.StringMetrics;
+import gnu.trove.map.hash.TIntIntHashMap;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Map;
 
 @Register(id = "zs")
 public class ZsMatcher extends Matcher {
 
+    // Largest matrix, in cells, kept in the per-thread pool between invocations
+    private static final int POOLED_CELLS = Integer.parseInt(
+            System.getProperty("gumtree.match.zs.pooled_cells", "1000000"));
+
+    // Tree distance and forest distance matrices reused by the invocations of a thread
+    private static final ThreadLocal<double[][]> POOL = ThreadLocal.withInitial(() -> new double[2][]);
+
+    private static final int TREE_DIST = 0;
+    private static final int FOREST_DIST = 1;
+
     private ZsTree src;
     private ZsTree dst;
 
-    private double[][] treeDist;
-    private double[][] forestDist;
+    // Distances of all the pairs of subtrees, row-major with rows of treeWidth cells
+    private double[] treeDist;
+    private int treeWidth;
 
-    private static ITree getFirstLeaf(ITree t) {
-        ITree current = t;
-        while (!current.isLeaf())
-            current = current.getChild(0);
+    // Distances of the forests of the last pair of subtrees computed, relative to its first row and column
+    private double[] forestDist;
+    private int forestRow;
+    private int forestCol;
+    private int forestWidth;
 
-        return current;
-    }
+    // Largest edit distance of interest: pairs of trees farther apart are left unmapped
+    private final double budget;
+
+    // Cells whose row and column offsets differ by more than band cost more than the budget
+    private int band;
 
     public ZsMatcher(ITree src, ITree dst, MappingStore store) {
+        this(src, dst, store, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Creates a matcher that only maps the trees if their edit distance is at most the given budget.
+     * Forest distances above the budget are pruned, since a forest of a nodes is at least |a - b|
+     * edits away from a forest of b nodes, so the cost of the computation shrinks with the budget.
+     * The mappings are the same as without budget whenever the trees are close enough.
+     */
+    public ZsMatcher(ITree src, ITree dst, MappingStore store, double budget) {
         super(src, dst, store);
         this.src = new ZsTree(src);
         this.dst = new ZsTree(dst);
+        this.budget = budget;
     }
 
-    private double[][] computeTreeDist() {
+    /**
+     * Creates a matcher with the given budget that compares the labels with the given similarity, so
+     * that the matchers run on many pairs of subtrees share the label profiles.
+     */
+    public ZsMatcher(ITree src, ITree dst, MappingStore store, double budget, LabelSimilarity labelSim) {
+        super(src, dst, store, labelSim);
+        this.src = new ZsTree(src);
+        this.dst = new ZsTree(dst);
+        this.budget = budget;
+    }
 
-        treeDist = new double[src.nodeCount + 1][dst.nodeCount + 1];
-        forestDist = new double[src.nodeCount + 1][dst.nodeCount + 1];
+    private static double[] acquire(int slot, long cells) {
+        if (cells > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Trees too large for the Zhang-Shasha algorithm: " + cells + " cells");
+        double[][] pool = POOL.get();
+        double[] buffer = pool[slot];
+        if (buffer != null && buffer.length >= cells) {
+            pool[slot] = null;
+            return buffer;
+        }
+        return new double[(int) cells];
+    }
+
+    private static void release(int slot, double[] buffer) {
+        if (buffer.length <= POOLED_CELLS) {
+            double[][] pool = POOL.get();
+            if (pool[slot] == null || pool[slot].length < buffer.length)
+                pool[slot] = buffer;
+        }
+    }
 
+    private void computeTreeDist() {
         for (int i = 1; i < src.kr.length; i++) {
             for (int j = 1; j < dst.kr.length; j++) {
                 forestDist(src.kr[i], dst.kr[j]);
 
             }
         }
+    }
+
+    private double forest(int di, int dj) {
+        if (Math.abs((di - forestRow) - (dj - forestCol)) > band)
+            return Double.POSITIVE_INFINITY;
+        return forestDist[(di - forestRow) * forestWidth + dj - forestCol];
+    }
 
-        return treeDist;
+    private double tree(int di, int dj) {
+        if (Math.abs((di - src.lld(di)) - (dj - dst.lld(dj))) > band)
+            return Double.POSITIVE_INFINITY;
+        return treeDist[di * treeWidth + dj];
+    }
+
+    private void setForest(int di, int dj, double dist) {
+        forestDist[(di - forestRow) * forestWidth + dj - forestCol] = dist;
     }
 
     private void forestDist(int i, int j) {
-        forestDist[src.lld(i) - 1][dst.lld(j) - 1] = 0;
+        forestRow = src.lld(i) - 1;
+        forestCol = dst.lld(j) - 1;
+        forestWidth = j - forestCol + 1;
+        setForest(forestRow, forestCol, 0);
+        for (int dj = dst.lld(j); dj <= Math.min(j, forestCol + band); dj++)
+            setForest(forestRow, dj, forest(forestRow, dj - 1) + getInsertionCost(dst.tree(dj)));
         for (int di = src.lld(i); di <= i; di++) {
             double costDel =  getDeletionCost(src.tree(di));
-            forestDist[di][dst.lld(j) - 1] = forestDist[di - 1][dst.lld(j) - 1] + costDel;
-            for (int dj = dst.lld(j); dj <= j; dj++) {
+            if (di - forestRow <= band)
+                setForest(di, forestCol, forest(di - 1, forestCol) + costDel);
+            // Only the cells within the band are computed, the others are read as infinite
+            int first = Math.max(dst.lld(j), di - forestRow + forestCol - band);
+            int last = Math.min(j, di - forestRow + forestCol + band);
+            for (int dj = first; dj <= last; dj++) {
                 double costIns = getInsertionCost(dst.tree(dj));
-                forestDist[src.lld(i) - 1][dj] = forestDist[src.lld(i) - 1][dj - 1] + costIns;
 
                 if ((src.lld(di) == src.lld(i) && (dst.lld(dj) == dst.lld(j)))) {
-                    double costUpd = getUpdateCost(src.tree(di), dst.tree(dj));
-                    forestDist[di][dj] = Math.min(Math.min(forestDist[di - 1][dj] + costDel,
-                                    forestDist[di][dj - 1] + costIns),
-                            forestDist[di - 1][dj - 1] + costUpd);
-                    treeDist[di][dj] = forestDist[di][dj];
+                    double costUpd = getUpdateCost(di, dj);
+                    double dist = Math.min(Math.min(forest(di - 1, dj) + costDel,
+                                    forest(di, dj - 1) + costIns),
+                            forest(di - 1, dj - 1) + costUpd);
+                    setForest(di, dj, dist);
+                    treeDist[di * treeWidth + dj] = dist;
                 } else {
-                    forestDist[di][dj] = Math.min(Math.min(forestDist[di - 1][dj] + costDel,
-                                    forestDist[di][dj - 1] + costIns),
-                            forestDist[src.lld(di) - 1][dst.lld(dj) - 1]
-                                    + treeDist[di][dj]);
+                    setForest(di, dj, Math.min(Math.min(forest(di - 1, dj) + costDel,
+                                    forest(di, dj - 1) + costIns),
+                            forest(src.lld(di) - 1, dst.lld(dj) - 1)
+                                    + tree(di, dj)));
                 }
             }
         }
@@ -97,7 +172,42 @@ public class ZsMatcher extends Matcher {
 
     @Override
     public void match() {
+        band = (int) Math.min(src.nodeCount + dst.nodeCount, Math.floor(budget));
+        if (getLowerBound() > budget)
+            return;
+        long cells = (long) (src.nodeCount + 1) * (dst.nodeCount + 1);
+        treeWidth = dst.nodeCount + 1;
+        treeDist = acquire(TREE_DIST, cells);
+        forestDist = acquire(FOREST_DIST, cells);
+        try {
+            matchTrees();
+        } finally {
+            release(TREE_DIST, treeDist);
+            release(FOREST_DIST, forestDist);
+            treeDist = null;
+            forestDist = null;
+        }
+    }
+
+    /**
+     * Returns a lower bound of the edit distance of the trees: nodes of different types are never
+     * renamed into each other, so the nodes in excess of each type have to be deleted or inserted.
+     */
+    private int getLowerBound() {
+        TIntIntHashMap counts = new TIntIntHashMap();
+        for (int i = 1; i <= src.nodeCount; i++)
+            counts.adjustOrPutValue(src.tree(i).getType(), 1, 1);
+        int common = 0;
+        for (int j = 1; j <= dst.nodeCount; j++)
+            if (counts.adjustOrPutValue(dst.tree(j).getType(), -1, -1) >= 0)
+                common++;
+        return src.nodeCount + dst.nodeCount - 2 * common;
+    }
+
+    private void matchTrees() {
         computeTreeDist();
+        if (forest(src.nodeCount, dst.nodeCount) > budget)
+            return;
 
         boolean rootNodePair = true;
 
@@ -127,11 +237,11 @@ public class ZsMatcher extends Matcher {
 
             while ((row > firstRow) || (col > firstCol)) {
                 if ((row > firstRow)
-                        && (forestDist[row - 1][col] + 1D == forestDist[row][col])) {
+                        && (forest(row - 1, col) + 1D == forest(row, col))) {
                     // node with postorderID row is deleted from ted1
                     row--;
                 } else if ((col > firstCol)
-                        && (forestDist[row][col - 1] + 1D == forestDist[row][col])) {
+                        && (forest(row, col - 1) + 1D == forest(row, col))) {
                     // node with postorderID col is inserted into ted2
                     col--;
                 } else {
@@ -169,12 +279,14 @@ public class ZsMatcher extends Matcher {
         return 1D;
     }
 
-    private double getUpdateCost(ITree n1, ITree n2) {
+    private double getUpdateCost(int i, int j) {
+        ITree n1 = src.tree(i);
+        ITree n2 = dst.tree(j);
         if (n1.getType() == n2.getType())
             if ("".equals(n1.getLabel()) || "".equals(n2.getLabel()))
                 return 1D;
             else
-                return 1D - StringMetrics.qGramsDistance().compare(n1.getLabel(), n2.getLabel());
+                return 1D - getLabelSimilarity().similarity(src.labelId(i), dst.labelId(j));
         else
             return Double.MAX_VALUE;
     }
@@ -191,6 +303,8 @@ public class ZsMatcher extends Matcher {
         // left-most leaf descendant of the i-th node in postorder
         private ITree[] labels; // labels[i] is the tree of the i-th node in postorder
 
+        private int[] labelIds; // labelIds[i] is the id of the label of the i-th node in postorder
+
         private int[] kr;
 
         private ZsTree(ITree t) {
@@ -199,13 +313,13 @@ public class ZsMatcher extends Matcher {
             this.leafCount = 0;
             this.llds = new int[start + nodeCount];
             this.labels = new ITree[start + nodeCount];
+            this.labelIds = new int[start + nodeCount];
 
             int idx = 1;
-            Map<ITree,Integer> tmpData = new HashMap<>();
             for (ITree n: t.postOrder()) {
-                tmpData.put(n, idx);
                 this.setITree(idx, n);
-                this.setLld(idx,  tmpData.get(ZsMatcher.getFirstLeaf(n)));
+                // The left-most leaf is the first node of the subtree in postorder
+                this.setLld(idx, idx - n.getSize() + 1);
                 if (n.isLeaf())
                     leafCount++;
                 idx++;
@@ -216,6 +330,7 @@ public class ZsMatcher extends Matcher {
 
         public void setITree(int i, ITree tree) {
             labels[i + start - 1] = tree;
+            labelIds[i + start - 1] = getLabelSimilarity().getLabelId(tree);
             if (nodeCount < i)
                 nodeCount = i;
         }
@@ -238,6 +353,10 @@ public class ZsMatcher extends Matcher {
             return labels[i + start - 1];
         }
 
+        public int labelId(int i) {
+            return labelIds[i + start - 1];
+        }
+
         public void setKeyRoots() {
             kr = new int[leafCount + 1];
             boolean[] visited = new boolean[nodeCount + 1];
@@ -35,6 +35,10 @@ public abstract class AbstractTree implements ITree {
     protected int hash;
     protected boolean matched;
 
+    // Traversal orders of the frozen tree the node belongs to, and the pre-order rank of the node in it
+    private TraversalOrders orders;
+    private int ordersRank;
+
     @Override
     public boolean areDescendantsMatched() {
         for (ITree c: getDescendants())
@@ -69,6 +73,9 @@ public abstract class AbstractTree implements ITree {
 
     @Override
     public List<ITree> getDescendants() {
+        TraversalOrders o = getOrders();
+        if (o != null)
+            return o.getDescendants(ordersRank);
         List<ITree> trees = TreeUtils.preOrder(this);
         trees.remove(0);
         return trees;
@@ -96,6 +103,9 @@ public abstract class AbstractTree implements ITree {
 
     @Override
     public List<ITree> getLeaves() {
+        TraversalOrders o = getOrders();
+        if (o != null)
+            return o.getLeaves(ordersRank);
         List<ITree> leafs = new ArrayList<>();
         for (ITree t: getTrees())
             if (t.isLeaf()) leafs.add(t);
@@ -109,17 +119,17 @@ public abstract class AbstractTree implements ITree {
 
     @Override
     public void setParent(ITree parent) {
+        invalidateOrders();
+        if (parent instanceof AbstractTree)
+            ((AbstractTree) parent).invalidateOrders();
         this.parent = parent;
     }
 
     @Override
     public List<ITree> getParents() {
         List<ITree> parents = new ArrayList<>();
-        if (getParent() == null) return parents;
-        else {
-            parents.add(getParent());
-            parents.addAll(getParent().getParents());
-        }
+        for (ITree p = getParent(); p != null; p = p.getParent())
+            parents.add(p);
         return parents;
     }
 
@@ -136,9 +146,35 @@ public abstract class AbstractTree implements ITree {
 
     @Override
     public List<ITree> getTrees() {
+        TraversalOrders o = getOrders();
+        if (o != null)
+            return o.getTrees(ordersRank);
         return TreeUtils.preOrder(this);
     }
 
+    void setOrders(TraversalOrders orders, int rank) {
+        this.orders = orders;
+        this.ordersRank = rank;
+    }
+
+    private TraversalOrders getOrders() {
+        if (orders != null && !orders.isValid())
+            orders = null;
+        return orders;
+    }
+
+    /**
+     * Drops the cached traversal orders of the tree this node belongs to. Called by the structural
+     * mutators; code that edits the children lists directly should also call setParent on the
+     * moved nodes, or validate the tree again.
+     */
+    protected void invalidateOrders() {
+        if (orders != null) {
+            orders.invalidate();
+            orders = null;
+        }
+    }
+
     private String indent(ITree t) {
         StringBuffer b = new StringBuffer();
         for (int i = 0; i < t.getDepth(); i++)
@@ -151,7 +187,21 @@ public abstract class AbstractTree implements ITree {
         if (this.getHash() != tree.getHash())
             return false;
         else
-            return this.toStaticHashString().equals(tree.toStaticHashString());
+            return isIsomorphic(this, tree);
+    }
+
+    // Same shape, types and labels, compared node by node instead of through the static hash strings
+    private static boolean isIsomorphic(ITree t1, ITree t2) {
+        if (t1.getType() != t2.getType() || !t1.hasSameLabel(t2))
+            return false;
+        List<ITree> c1 = t1.getChildren();
+        List<ITree> c2 = t2.getChildren();
+        if (c1.size() != c2.size())
+            return false;
+        for (int i = 0; i < c1.size(); i++)
+            if (!isIsomorphic(c1.get(i), c2.get(i)))
+                return false;
+        return true;
     }
 
     @Override
@@ -182,15 +232,40 @@ public abstract class AbstractTree implements ITree {
     @Override
     public boolean isSimilar(ITree t) {
         if (!isCompatible(t)) return false;
-        else if (!getLabel().equals(t.getLabel())) return false;
+        else if (!hasSameLabel(t)) return false;
         return true;
     }
 
+    @Override
+    public int getLabelId() {
+        return LabelDictionary.NO_ID;
+    }
+
+    /**
+     * Returns the dictionary in which the label is interned, or null.
+     */
+    LabelDictionary getLabelDictionary() {
+        return null;
+    }
+
+    @Override
+    public boolean hasSameLabel(ITree t) {
+        if (t instanceof AbstractTree) {
+            LabelDictionary labels = getLabelDictionary();
+            if (labels != null && labels == ((AbstractTree) t).getLabelDictionary())
+                return getLabelId() == t.getLabelId();
+        }
+        return getLabel().equals(t.getLabel());
+    }
+
     @Override
     public Iterable<ITree> preOrder() {
         return new Iterable<ITree>() {
             @Override
             public Iterator<ITree> iterator() {
+                TraversalOrders o = getOrders();
+                if (o != null)
+                    return o.getTrees(ordersRank).iterator();
                 return TreeUtils.preOrderIterator(AbstractTree.this);
             }
         };
@@ -201,6 +276,9 @@ public abstract class AbstractTree implements ITree {
         return new Iterable<ITree>() {
             @Override
             public Iterator<ITree> iterator() {
+                TraversalOrders o = getOrders();
+                if (o != null)
+                    return o.getPostOrder(ordersRank).iterator();
                 return TreeUtils.postOrderIterator(AbstractTree.this);
             }
         };
@@ -211,6 +289,9 @@ public abstract class AbstractTree implements ITree {
         return new Iterable<ITree>() {
             @Override
             public Iterator<ITree> iterator() {
+                TraversalOrders o = getOrders();
+                if (o != null && o.getBreadthFirst(ordersRank) != null)
+                    return o.getBreadthFirst(ordersRank).iterator();
                 return TreeUtils.breadthFirstIterator(AbstractTree.this);
             }
         };
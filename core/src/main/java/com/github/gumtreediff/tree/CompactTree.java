@@ -0,0 +1,260 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree;
+
+/**
+ * Read-only structure-of-arrays view of a tree. Nodes are numbered by pre-order rank, so that the
+ * descendants of node n are the nodes n + 1 to n + getSize(n) - 1, and each node attribute is held in
+ * an int array indexed by rank. Traversals walk the first child / next sibling links or the rank
+ * ranges instead of allocating node lists. Labels are replaced by ids: two views built with the same
+ * label dictionary can compare labels, and thus subtrees, without touching the strings.
+ * The view is a snapshot, it has to be rebuilt if the tree is modified.
+ */
+public class CompactTree {
+
+    public static final int NONE = -1;
+
+    private final ITree[] trees;
+
+    private final int[] types;
+
+    private final int[] labels;
+
+    private final int[] parents;
+
+    private final int[] firstChildren;
+
+    private final int[] nextSiblings;
+
+    private final int[] sizes;
+
+    private final int[] heights;
+
+    private final int[] depths;
+
+    private final int[] hashes;
+
+    public CompactTree(TreeContext context) {
+        this(context.getRoot());
+    }
+
+    public CompactTree(ITree root) {
+        this(root, new LabelDictionary());
+    }
+
+    /**
+     * Builds the view of the given tree, taking the ids of its labels from the given dictionary, which
+     * can be the one of the tree's context (see {@link LabelDictionary#shared(ITree, ITree)}). Views
+     * that have to compare labels must share the same dictionary.
+     */
+    public CompactTree(ITree root, LabelDictionary labelDictionary) {
+        int n = root.getSize();
+        trees = new ITree[n];
+        types = new int[n];
+        labels = new int[n];
+        parents = new int[n];
+        firstChildren = new int[n];
+        nextSiblings = new int[n];
+        sizes = new int[n];
+        heights = new int[n];
+        depths = new int[n];
+        hashes = new int[n];
+
+        // Explicit stack of the nodes to visit, children pushed in reverse order to pop them in pre-order
+        ITree[] stack = new ITree[Math.max(n, 1)];
+        int[] stackParents = new int[stack.length];
+        int top = 0;
+        stack[0] = root;
+        stackParents[0] = NONE;
+        int rank = 0;
+        while (top >= 0) {
+            ITree t = stack[top];
+            int parent = stackParents[top--];
+            if (rank == n)
+                throw new IllegalArgumentException("Tree size does not match its number of nodes");
+            trees[rank] = t;
+            types[rank] = t.getType();
+            labels[rank] = labelDictionary.getId(t);
+            parents[rank] = parent;
+            firstChildren[rank] = NONE;
+            nextSiblings[rank] = NONE;
+            heights[rank] = t.getHeight();
+            depths[rank] = parent == NONE ? 0 : depths[parent] + 1;
+            hashes[rank] = t.getHash();
+            for (int i = t.getChildren().size() - 1; i >= 0; i--) {
+                stack[++top] = t.getChildren().get(i);
+                stackParents[top] = rank;
+            }
+            rank++;
+        }
+        if (rank != n)
+            throw new IllegalArgumentException("Tree size does not match its number of nodes");
+
+        // Ranks are visited backwards so that every child is linked before its previous sibling
+        for (int r = n - 1; r >= 0; r--) {
+            sizes[r] += 1;
+            int parent = parents[r];
+            if (parent != NONE) {
+                sizes[parent] += sizes[r];
+                nextSiblings[r] = firstChildren[parent];
+                firstChildren[parent] = r;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes of the tree.
+     */
+    public int size() {
+        return trees.length;
+    }
+
+    public ITree getTree(int n) {
+        return trees[n];
+    }
+
+    public int getType(int n) {
+        return types[n];
+    }
+
+    public int getLabelId(int n) {
+        return labels[n];
+    }
+
+    public int getParent(int n) {
+        return parents[n];
+    }
+
+    public int getFirstChild(int n) {
+        return firstChildren[n];
+    }
+
+    public int getNextSibling(int n) {
+        return nextSiblings[n];
+    }
+
+    /**
+     * Returns the size of the subtree rooted at n, n included.
+     */
+    public int getSize(int n) {
+        return sizes[n];
+    }
+
+    public int getHeight(int n) {
+        return heights[n];
+    }
+
+    public int getDepth(int n) {
+        return depths[n];
+    }
+
+    public int getHash(int n) {
+        return hashes[n];
+    }
+
+    /**
+     * Returns true if d is a strict descendant of n.
+     */
+    public boolean isDescendant(int n, int d) {
+        return d > n && d < n + sizes[n];
+    }
+
+    /**
+     * Returns the first node of the post-order traversal of the subtree rooted at n.
+     */
+    public int postOrderFirst(int n) {
+        while (firstChildren[n] != NONE)
+            n = firstChildren[n];
+        return n;
+    }
+
+    /**
+     * Returns the node following n in the post-order traversal of the subtree rooted at root, or NONE
+     * if n is root.
+     */
+    public int postOrderNext(int root, int n) {
+        if (n == root)
+            return NONE;
+        if (nextSiblings[n] != NONE)
+            return postOrderFirst(nextSiblings[n]);
+        return parents[n];
+    }
+
+    /**
+     * Returns true if the subtree rooted at n is isomorphic to the subtree rooted at m in other:
+     * same shape, types and labels. Both views must share their label ids.
+     */
+    public boolean isClone(int n, CompactTree other, int m) {
+        if (hashes[n] != other.hashes[m] || sizes[n] != other.sizes[m])
+            return false;
+        for (int k = 0; k < sizes[n]; k++) {
+            // In pre-order, the subtree sizes determine the shape
+            if (types[n + k] != other.types[m + k] || labels[n + k] != other.labels[m + k]
+                    || sizes[n + k] != other.sizes[m + k])
+                return false;
+        }
+        return true;
+    }
+
+    public Cursor cursor(int n) {
+        return new Cursor(n);
+    }
+
+    /**
+     * Moves along the links of the view. Moves that would leave the tree return false and leave the
+     * cursor in place.
+     */
+    public class Cursor {
+
+        private int node;
+
+        private Cursor(int node) {
+            this.node = node;
+        }
+
+        public int node() {
+            return node;
+        }
+
+        public void moveTo(int n) {
+            node = n;
+        }
+
+        public boolean toParent() {
+            return moveIfSome(parents[node]);
+        }
+
+        public boolean toFirstChild() {
+            return moveIfSome(firstChildren[node]);
+        }
+
+        public boolean toNextSibling() {
+            return moveIfSome(nextSiblings[node]);
+        }
+
+        private boolean moveIfSome(int n) {
+            if (n == NONE)
+                return false;
+            node = n;
+            return true;
+        }
+    }
+}
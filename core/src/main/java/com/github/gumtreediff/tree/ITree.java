@@ -84,6 +84,18 @@ public interface ITree {
 
     public abstract String getLabel();
 
+    /**
+     * Returns the id of the label in the {@link LabelDictionary} of the tree's context, or
+     * {@link LabelDictionary#NO_ID} if the tree was not created through a context.
+     */
+    public abstract int getLabelId();
+
+    /**
+     * Indicate whether or not the tree has the same label as the given tree. Labels interned in the
+     * same dictionary are compared by id.
+     */
+    public abstract boolean hasSameLabel(ITree t);
+
     public abstract List<ITree> getLeaves();
 
     public abstract int getLength();
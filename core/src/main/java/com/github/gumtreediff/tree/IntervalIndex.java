@@ -0,0 +1,147 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pre-order interval index of a tree. Each node gets its pre-order rank, and the descendants
+ * of a node are exactly the nodes whose rank lies in ]rank, rank + subtree size[, so that
+ * containment is a range check. Nodes are found by id: nodes with a negative or duplicated id
+ * are not indexed, and {@link #getRank(ITree)} returns -1 for them as for any foreign node.
+ * The index is a snapshot, it has to be rebuilt if the tree is modified.
+ */
+public class IntervalIndex {
+
+    private static final int NONE = -1;
+
+    private final int[] ranks;
+
+    private final int[] sizes;
+
+    private final ITree[] trees;
+
+    private final boolean complete;
+
+    public IntervalIndex(ITree root) {
+        List<ITree> preOrder = TreeUtils.preOrder(root);
+        int n = preOrder.size();
+        trees = preOrder.toArray(new ITree[n]);
+
+        int maxId = -1;
+        for (ITree t: trees)
+            maxId = Math.max(maxId, t.getId());
+        ranks = new int[maxId + 1];
+        Arrays.fill(ranks, NONE);
+        boolean[] duplicated = new boolean[maxId + 1];
+        for (int r = 0; r < n; r++) {
+            int id = trees[r].getId();
+            if (id < 0)
+                continue;
+            if (ranks[id] != NONE)
+                duplicated[id] = true;
+            ranks[id] = r;
+        }
+        int indexed = 0;
+        for (int id = 0; id <= maxId; id++) {
+            if (duplicated[id])
+                ranks[id] = NONE;
+            else if (ranks[id] != NONE)
+                indexed++;
+        }
+        complete = indexed == n;
+
+        // In pre-order, the subtree of a node ends where the next node which is not one of its
+        // descendants starts: keep the open ancestors on a stack and close them when leaving them.
+        sizes = new int[n];
+        int[] open = new int[n];
+        int top = -1;
+        for (int r = 0; r < n; r++) {
+            ITree parent = trees[r].getParent();
+            while (top >= 0 && trees[open[top]] != parent) {
+                int closed = open[top--];
+                sizes[closed] = r - closed;
+            }
+            open[++top] = r;
+        }
+        while (top >= 0) {
+            int closed = open[top--];
+            sizes[closed] = n - closed;
+        }
+    }
+
+    /**
+     * Returns true if all the nodes of the tree are indexed.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the number of nodes of the indexed tree.
+     */
+    public int size() {
+        return trees.length;
+    }
+
+    /**
+     * Returns the pre-order rank of the given node, or -1 if the node is not indexed.
+     */
+    public int getRank(ITree t) {
+        int id = t.getId();
+        if (id < 0 || id >= ranks.length)
+            return NONE;
+        int r = ranks[id];
+        if (r == NONE || trees[r] != t)
+            return NONE;
+        return r;
+    }
+
+    public boolean contains(ITree t) {
+        return getRank(t) != NONE;
+    }
+
+    public ITree getTree(int rank) {
+        return trees[rank];
+    }
+
+    /**
+     * Returns the size of the subtree rooted at the node of the given rank, the node included.
+     */
+    public int getSubtreeSize(int rank) {
+        return sizes[rank];
+    }
+
+    /**
+     * Returns true if t is a strict descendant of ancestor, false if one of them is not indexed.
+     */
+    public boolean isDescendant(ITree ancestor, ITree t) {
+        int a = getRank(ancestor);
+        int r = getRank(t);
+        return isDescendant(a, r);
+    }
+
+    public boolean isDescendant(int ancestorRank, int rank) {
+        return ancestorRank != NONE && rank != NONE
+                && rank > ancestorRank && rank < ancestorRank + sizes[ancestorRank];
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interning table of the labels of a tree: each distinct label is given a dense int id the first
+ * time it is seen, and nodes keep the id along with a canonical instance of the string. Two nodes
+ * whose labels come from the same dictionary have equal labels if and only if they have equal ids.
+ * A dictionary is owned by a {@link TreeContext}, and the two contexts of a diff can share one
+ * (see {@link TreeContext#setLabelDictionary(LabelDictionary)}). It is released with them, unlike
+ * the JVM string pool.
+ */
+public class LabelDictionary {
+
+    public static final int NO_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final List<String> labels = new ArrayList<>();
+
+    /**
+     * Returns the id of the given label, allocating it if needed.
+     */
+    public synchronized int getId(String label) {
+        Integer id = ids.get(label);
+        if (id == null) {
+            id = labels.size();
+            ids.put(label, id);
+            labels.add(label);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the label of the given tree, allocating it if needed. The label of a tree
+     * interned in this dictionary is not looked up again.
+     */
+    public int getId(ITree t) {
+        if (t instanceof AbstractTree && ((AbstractTree) t).getLabelDictionary() == this)
+            return t.getLabelId();
+        return getId(t.getLabel());
+    }
+
+    /**
+     * Returns the id of the given label, or NO_ID if the label has never been seen.
+     */
+    public synchronized int lookup(String label) {
+        Integer id = ids.get(label);
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * Returns the dictionary in which the labels of both trees are interned if they share one, or a
+     * new dictionary otherwise.
+     */
+    public static LabelDictionary shared(ITree a, ITree b) {
+        if (a instanceof AbstractTree && b instanceof AbstractTree) {
+            LabelDictionary labels = ((AbstractTree) a).getLabelDictionary();
+            if (labels != null && labels == ((AbstractTree) b).getLabelDictionary())
+                return labels;
+        }
+        return new LabelDictionary();
+    }
+
+    public synchronized String getLabel(int id) {
+        return labels.get(id);
+    }
+
+    /**
+     * Returns the number of distinct labels.
+     */
+    public synchronized int size() {
+        return labels.size();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout of the local metadata of the nodes of a tree: each metadata key is given an int slot the
+ * first time it is used, and nodes store their metadata in an array indexed by slot. A schema is
+ * owned by a {@link TreeContext} and shared by all the nodes it creates; nodes created directly
+ * share {@link #DEFAULT}.
+ */
+public class MetadataSchema {
+
+    public static final int NO_SLOT = -1;
+
+    /**
+     * Schema of the nodes that are not created through a context.
+     */
+    public static final MetadataSchema DEFAULT = new MetadataSchema();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private final List<String> keys = new ArrayList<>();
+
+    /**
+     * Returns the slot of the given key, or NO_SLOT if the key has never been used.
+     */
+    public synchronized int getSlot(String key) {
+        Integer slot = slots.get(key);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    /**
+     * Returns the slot of the given key, allocating it if needed.
+     */
+    public synchronized int register(String key) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = keys.size();
+            slots.put(key, slot);
+            keys.add(key);
+        }
+        return slot;
+    }
+
+    public synchronized String getKey(int slot) {
+        return keys.get(slot);
+    }
+
+    /**
+     * Returns the number of allocated slots.
+     */
+    public synchronized int size() {
+        return keys.size();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Traversal orders of a frozen tree, computed once and shared by all its nodes (see
+ * {@link TreeContext#validate()}). The nodes of a subtree are contiguous both in pre-order and in
+ * post-order, so the traversals of any node are read-only sub-ranges of the arrays of the root.
+ * Any structural change of the tree through the {@link ITree} mutators invalidates the orders,
+ * and the nodes then fall back to computing their traversals.
+ */
+final class TraversalOrders {
+
+    private final List<ITree> preOrder;
+
+    private final List<ITree> postOrder;
+
+    private final List<ITree> breadthFirst;
+
+    private final List<ITree> leaves;
+
+    private final int[] sizes;
+
+    private final int[] depths;
+
+    // Number of leaves before each pre-order rank
+    private final int[] leavesBefore;
+
+    private boolean valid = true;
+
+    private TraversalOrders(ITree root) {
+        List<ITree> trees = TreeUtils.preOrder(root);
+        int n = trees.size();
+        ITree[] pre = trees.toArray(new ITree[n]);
+
+        // Subtree sizes and depths, with the open ancestors kept on a stack as in IntervalIndex
+        sizes = new int[n];
+        depths = new int[n];
+        int[] open = new int[n];
+        int top = -1;
+        for (int r = 0; r < n; r++) {
+            ITree parent = pre[r].getParent();
+            while (top >= 0 && pre[open[top]] != parent) {
+                int closed = open[top--];
+                sizes[closed] = r - closed;
+            }
+            depths[r] = top + 1;
+            open[++top] = r;
+        }
+        while (top >= 0) {
+            int closed = open[top--];
+            sizes[closed] = n - closed;
+        }
+
+        // A node is preceded in post-order by its descendants instead of its ancestors
+        ITree[] post = new ITree[n];
+        for (int r = 0; r < n; r++)
+            post[r + sizes[r] - 1 - depths[r]] = pre[r];
+
+        leavesBefore = new int[n + 1];
+        ITree[] leafArray = new ITree[n];
+        int nLeaves = 0;
+        for (int r = 0; r < n; r++) {
+            leavesBefore[r] = nLeaves;
+            if (sizes[r] == 1)
+                leafArray[nLeaves++] = pre[r];
+        }
+        leavesBefore[n] = nLeaves;
+
+        preOrder = Collections.unmodifiableList(Arrays.asList(pre));
+        postOrder = Collections.unmodifiableList(Arrays.asList(post));
+        breadthFirst = Collections.unmodifiableList(TreeUtils.breadthFirst(root));
+        leaves = Collections.unmodifiableList(Arrays.asList(leafArray).subList(0, nLeaves));
+    }
+
+    /**
+     * Computes the orders of the given tree and attaches them to its nodes.
+     */
+    static void freeze(ITree root) {
+        TraversalOrders orders = new TraversalOrders(root);
+        for (int r = 0; r < orders.preOrder.size(); r++) {
+            ITree t = orders.preOrder.get(r);
+            if (t instanceof AbstractTree)
+                ((AbstractTree) t).setOrders(orders, r);
+        }
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    List<ITree> getTrees(int rank) {
+        return preOrder.subList(rank, rank + sizes[rank]);
+    }
+
+    List<ITree> getDescendants(int rank) {
+        return preOrder.subList(rank + 1, rank + sizes[rank]);
+    }
+
+    List<ITree> getPostOrder(int rank) {
+        int last = rank + sizes[rank] - 1 - depths[rank];
+        return postOrder.subList(last - sizes[rank] + 1, last + 1);
+    }
+
+    List<ITree> getLeaves(int rank) {
+        return leaves.subList(leavesBefore[rank], leavesBefore[rank + sizes[rank]]);
+    }
+
+    /**
+     * Returns the breadth-first order of the subtree of the given rank, or null if it is not cached:
+     * only the root's is, since a subtree is not contiguous in breadth-first order.
+     */
+    List<ITree> getBreadthFirst(int rank) {
+        return rank == 0 ? breadthFirst : null;
+    }
+}
@@ -20,10 +20,13 @@
 
 package com.github.gumtreediff.tree;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 public class Tree extends AbstractTree implements ITree {
 
@@ -33,17 +36,38 @@ public class Tree extends AbstractTree implements ITree {
     // Label of the token
     String label;
 
+    // Id of the label in the dictionary of the context, if any
+    private LabelDictionary labels;
+    private int labelId;
+
     // Begin position of the tree in terms of absolute character index
     int pos;
     int length;
     // End position
 
-    private AssociationMap metadata;
+    // Local metadata, indexed by the slots of the schema
+    private final MetadataSchema schema;
+    private Object[] metadata;
 
     /** Constructs a new node. If you need type labels corresponding to the integer, see class TreeContext.createTree */
     public Tree(int type, String label) {
+        this(type, label, MetadataSchema.DEFAULT);
+    }
+
+    /** Constructs a new node storing its metadata with the given schema. */
+    public Tree(int type, String label, MetadataSchema schema) {
+        this(type, label, schema, null);
+    }
+
+    /**
+     * Constructs a new node storing its metadata with the given schema and interning its label in
+     * the given dictionary, which may be null.
+     */
+    public Tree(int type, String label, MetadataSchema schema, LabelDictionary labels) {
+        this.schema = schema;
         this.type = type;
-        this.label = (label == null) ? NO_LABEL : label.intern();
+        this.labels = labels;
+        assignLabel((label == null) ? NO_LABEL : label);
         this.id = NO_ID;
         this.depth = NO_VALUE;
         this.hash = NO_VALUE;
@@ -60,6 +84,8 @@ public class Tree extends AbstractTree implements ITree {
     private Tree(Tree other) {
         this.type = other.type;
         this.label = other.getLabel();
+        this.labels = other.labels;
+        this.labelId = other.labelId;
 
         this.id = other.getId();
         this.matched = other.isMatched();
@@ -71,11 +97,13 @@ public class Tree extends AbstractTree implements ITree {
         this.hash = other.getHash();
         this.depth = other.getDepth();
         this.children = new ArrayList<>();
-        this.metadata = other.metadata;
+        this.schema = other.schema;
+        this.metadata = other.metadata == null ? null : other.metadata.clone();
     }
 
     @Override
     public void addChild(ITree t) {
+        invalidateOrders();
         children.add(t);
         t.setParent(this);
     }
@@ -98,6 +126,34 @@ public class Tree extends AbstractTree implements ITree {
         return label;
     }
 
+    @Override
+    public int getLabelId() {
+        return labelId;
+    }
+
+    @Override
+    LabelDictionary getLabelDictionary() {
+        return labels;
+    }
+
+    /**
+     * Interns the label of the node in the given dictionary, or drops its id if null.
+     */
+    void setLabelDictionary(LabelDictionary labels) {
+        this.labels = labels;
+        assignLabel(label);
+    }
+
+    private void assignLabel(String label) {
+        if (labels == null) {
+            this.label = label;
+            this.labelId = LabelDictionary.NO_ID;
+        } else {
+            this.labelId = labels.getId(label);
+            this.label = labels.getLabel(labelId);
+        }
+    }
+
     @Override
     public int getLength() {
         return length;
@@ -120,6 +176,7 @@ public class Tree extends AbstractTree implements ITree {
 
     @Override
     public void setChildren(List<ITree> children) {
+        invalidateOrders();
         this.children = children;
         for (ITree c : children)
             c.setParent(this);
@@ -127,7 +184,7 @@ public class Tree extends AbstractTree implements ITree {
 
     @Override
     public void setLabel(String label) {
-        this.label = label;
+        assignLabel(label);
     }
 
     @Override
@@ -137,11 +194,17 @@ public class Tree extends AbstractTree implements ITree {
 
     @Override
     public void setParent(ITree parent) {
+        invalidateOrders();
+        if (parent instanceof AbstractTree)
+            ((AbstractTree) parent).invalidateOrders();
         this.parent = parent;
     }
 
     @Override
     public void setParentAndUpdateChildren(ITree parent) {
+        invalidateOrders();
+        if (parent instanceof AbstractTree)
+            ((AbstractTree) parent).invalidateOrders();
         if (this.parent != null) this.parent.getChildren().remove(this);
         this.parent = parent;
         if (this.parent != null) parent.getChildren().add(this);
@@ -161,7 +224,10 @@ public class Tree extends AbstractTree implements ITree {
     public Object getMetadata(String key) {
         if (metadata == null)
             return null;
-        return metadata.get(key);
+        int slot = schema.getSlot(key);
+        if (slot == MetadataSchema.NO_SLOT || slot >= metadata.length)
+            return null;
+        return metadata[slot];
     }
 
     @Override
@@ -169,18 +235,49 @@ public class Tree extends AbstractTree implements ITree {
         if (value == null) {
             if (metadata == null)
                 return null;
-            else
-                return metadata.remove(key);
+            int slot = schema.getSlot(key);
+            if (slot == MetadataSchema.NO_SLOT || slot >= metadata.length)
+                return null;
+            Object previous = metadata[slot];
+            metadata[slot] = null;
+            return previous;
         }
+        int slot = schema.register(key);
         if (metadata == null)
-            metadata = new AssociationMap();
-        return metadata.set(key, value);
+            metadata = new Object[schema.size()];
+        else if (slot >= metadata.length)
+            metadata = Arrays.copyOf(metadata, schema.size());
+        Object previous = metadata[slot];
+        metadata[slot] = value;
+        return previous;
     }
 
     @Override
     public Iterator<Entry<String, Object>> getMetadata() {
         if (metadata == null)
             return new EmptyEntryIterator();
-        return metadata.iterator();
+        return new Iterator<Entry<String, Object>>() {
+            int slot = advance(0);
+
+            private int advance(int from) {
+                while (from < metadata.length && metadata[from] == null)
+                    from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < metadata.length;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Entry<String, Object> e = new AbstractMap.SimpleEntry<>(schema.getKey(slot), metadata[slot]);
+                slot = advance(slot + 1);
+                return e;
+            }
+        };
     }
 }
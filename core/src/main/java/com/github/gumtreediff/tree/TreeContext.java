@@ -24,6 +24,9 @@ import com.github.gumtreediff.io.TreeIoUtils;
 import com.github.gumtreediff.io.TreeIoUtils.MetadataSerializer;
 import com.github.gumtreediff.io.TreeIoUtils.MetadataUnserializer;
 import com.github.gumtreediff.io.TreeIoUtils.TreeFormatter;
+import com.github.gumtreediff.tree.hash.FingerprintDictionary;
+import com.github.gumtreediff.tree.hash.HashConsingGenerator;
+import com.github.gumtreediff.tree.hash.HashUtils;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -34,6 +37,9 @@ public class TreeContext {
     Map<Integer, String> typeLabels = new HashMap<>();
     final Map<String, Object> metadata = new HashMap<>();
     final MetadataSerializers serializers = new MetadataSerializers();
+    final MetadataSchema metadataSchema = new MetadataSchema();
+    LabelDictionary labelDictionary = new LabelDictionary();
+    HashConsingGenerator hashGenerator = new HashConsingGenerator(HashUtils.DEFAULT_FINGERPRINTS);
 
     ITree root;
 
@@ -74,16 +80,75 @@ public class TreeContext {
     public ITree createTree(int type, String label, String typeLabel) {
         registerTypeLabel(type, typeLabel);
 
-        return new Tree(type, label);
+        return new Tree(type, label, metadataSchema, labelDictionary);
     }
 
     public ITree createTree(ITree... trees) {
         return new AbstractTree.FakeTree(trees);
     }
 
+    /**
+     * Computes the sizes, depths, heights, hashes and ids of the nodes, then freezes the tree:
+     * the pre-order, post-order and breadth-first orders are computed once, and the traversal
+     * methods of the nodes return read-only views of them instead of new lists. A structural change
+     * through the {@link ITree} mutators unfreezes the tree, validate it again to refreeze it.
+     */
     public void validate() {
-        root.refresh();
+        if (root instanceof AbstractTree)
+            ((AbstractTree) root).invalidateOrders();
+        TreeUtils.computeSize(root);
+        TreeUtils.computeDepth(root);
+        TreeUtils.computeHeight(root);
+        hashGenerator.hash(root);
         TreeUtils.postOrderNumbering(root);
+        TraversalOrders.freeze(root);
+    }
+
+    /**
+     * Get the schema in which the nodes created by this context store their local metadata.
+     */
+    public MetadataSchema getMetadataSchema() {
+        return metadataSchema;
+    }
+
+    /**
+     * Get the dictionary in which the nodes created by this context intern their labels.
+     */
+    public LabelDictionary getLabelDictionary() {
+        return labelDictionary;
+    }
+
+    /**
+     * Make this context intern the labels of its nodes in the given dictionary, re-interning the
+     * nodes already created. Sharing the dictionary of the other context of a diff lets the matchers
+     * compare the labels of both trees by id.
+     */
+    public void setLabelDictionary(LabelDictionary labels) {
+        this.labelDictionary = labels;
+        if (root != null)
+            for (ITree t : root.getTrees())
+                if (t instanceof Tree)
+                    ((Tree) t).setLabelDictionary(labels);
+    }
+
+    /**
+     * Get the dictionary in which the hashes of the nodes of this context are interned: the hash of
+     * a node is its content id in it. By default it is the global {@link HashUtils#DEFAULT_FINGERPRINTS}.
+     */
+    public FingerprintDictionary getFingerprints() {
+        return hashGenerator.getFingerprints();
+    }
+
+    /**
+     * Make this context hash its nodes in the given dictionary, re-hashing the nodes already
+     * created. The hashes of two trees are only comparable if they are interned in the same
+     * dictionary: share it between the two contexts of a diff, so that it is released with them
+     * instead of growing the global one.
+     */
+    public void setFingerprints(FingerprintDictionary fingerprints) {
+        this.hashGenerator = new HashConsingGenerator(fingerprints);
+        if (root != null)
+            hashGenerator.hash(root);
     }
 
     public boolean hasLabelFor(int type) {
@@ -37,4 +37,24 @@ public class TreeMap {
         return trees.get(id);
     }
 
+    /**
+     * Returns the nodes of the given tree in an array indexed by their id. The tree has
+     * to be numbered, and the array has holes if the ids of the tree are not contiguous.
+     */
+    public static ITree[] toArray(ITree tree) {
+        int maxId = -1;
+        for (ITree t: tree.preOrder()) {
+            if (t.getId() < 0)
+                throw new IllegalArgumentException("Tree is not numbered");
+            maxId = Math.max(maxId, t.getId());
+        }
+        ITree[] trees = new ITree[maxId + 1];
+        for (ITree t: tree.preOrder()) {
+            if (trees[t.getId()] != null)
+                throw new IllegalArgumentException("Duplicated node id " + t.getId());
+            trees[t.getId()] = t;
+        }
+        return trees;
+    }
+
 }
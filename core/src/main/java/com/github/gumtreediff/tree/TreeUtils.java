@@ -294,7 +294,17 @@ public final class TreeUtils {
 
     public static Iterator<ITree> leafIterator(final Iterator<ITree> it) {
         return new Iterator<ITree>() {
-            ITree current = it.hasNext() ? it.next() : null;
+            ITree current = nextLeaf();
+
+            private ITree nextLeaf() {
+                while (it.hasNext()) {
+                    ITree t = it.next();
+                    if (t.isLeaf())
+                        return t;
+                }
+                return null;
+            }
+
             @Override
             public boolean hasNext() {
                 return current != null;
@@ -302,12 +312,10 @@ public final class TreeUtils {
 
             @Override
             public ITree next() {
+                if (current == null)
+                    throw new NoSuchElementException();
                 ITree val = current;
-                while (it.hasNext()) {
-                    current = it.next();
-                    if (current.isLeaf())
-                        break;
-                }
+                current = nextLeaf();
                 return val;
             }
 
@@ -0,0 +1,78 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree.hash;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns node fingerprints as dense ids. The content id of a node identifies its type, its label
+ * and the content ids of its children, the shape id its type and the shape ids of its children:
+ * two nodes have the same content id if and only if their subtrees are isomorphic, and the same
+ * shape id if and only if their subtrees are isomorphic when ignoring labels. Fingerprints are
+ * computed bottom-up, children first.
+ */
+public class FingerprintDictionary {
+
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    private final TupleDictionary contents = new TupleDictionary();
+
+    private final TupleDictionary shapes = new TupleDictionary();
+
+    private int[] tuple = new int[16];
+
+    /**
+     * Returns the content id of a node from its type, its label and the content ids of
+     * its count first children.
+     */
+    public synchronized int contentId(int type, String label, int[] children, int count) {
+        ensureCapacity(count + 2);
+        tuple[0] = type;
+        tuple[1] = labelId(label);
+        System.arraycopy(children, 0, tuple, 2, count);
+        return contents.intern(tuple, count + 2);
+    }
+
+    /**
+     * Returns the shape id of a node from its type and the shape ids of its count first children.
+     */
+    public synchronized int shapeId(int type, int[] children, int count) {
+        ensureCapacity(count + 1);
+        tuple[0] = type;
+        System.arraycopy(children, 0, tuple, 1, count);
+        return shapes.intern(tuple, count + 1);
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > tuple.length)
+            tuple = new int[Math.max(length, tuple.length * 2)];
+    }
+
+    private int labelId(String label) {
+        Integer id = labels.get(label);
+        if (id == null) {
+            id = labels.size();
+            labels.put(label, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree.hash;
+
+import java.util.List;
+
+import com.github.gumtreediff.tree.ITree;
+
+/**
+ * Hash-consing generator: the hash of a node is its content id in a {@link FingerprintDictionary}.
+ * Like {@link HashDictionaryGenerator}, two nodes get the same hash if and only if their subtrees
+ * are isomorphic, and hashes are dense ids shared by all the trees hashed with the same dictionary,
+ * but no string is built nor digested.
+ */
+public class HashConsingGenerator implements HashGenerator {
+
+    private final FingerprintDictionary fingerprints;
+
+    private int[] children = new int[16];
+
+    public HashConsingGenerator() {
+        this(new FingerprintDictionary());
+    }
+
+    public HashConsingGenerator(FingerprintDictionary fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    public FingerprintDictionary getFingerprints() {
+        return fingerprints;
+    }
+
+    @Override
+    public synchronized void hash(ITree t) {
+        for (ITree n: t.postOrder()) {
+            List<ITree> nodeChildren = n.getChildren();
+            int count = nodeChildren.size();
+            if (count > children.length)
+                children = new int[Math.max(count, children.length * 2)];
+            for (int i = 0; i < count; i++)
+                children[i] = nodeChildren.get(i).getHash();
+            n.setHash(fingerprints.contentId(n.getType(), n.getLabel(), children, count));
+        }
+    }
+}
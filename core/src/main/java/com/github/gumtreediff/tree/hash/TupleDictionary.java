@@ -0,0 +1,141 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.tree.hash;
+
+import java.util.Arrays;
+
+/**
+ * Interns tuples of ints: equal tuples get the same id, and ids are allocated densely from 0 in
+ * order of first appearance. Tuples are stored one after the other in a single int pool, and
+ * looked up through an open-addressing table of ids, so interning a tuple allocates nothing
+ * once the arrays have grown to the right size.
+ */
+public class TupleDictionary {
+
+    private static final int EMPTY = -1;
+
+    private int[] pool = new int[1024];
+
+    private int poolSize;
+
+    // Start of each tuple in the pool, tuple i spans [starts[i], starts[i + 1]).
+    private int[] starts = new int[257];
+
+    private int[] hashes = new int[256];
+
+    private int size;
+
+    private int[] table = newTable(512);
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /**
+     * Returns the id of the tuple made of the first length values of the given array.
+     */
+    public int intern(int[] tuple, int length) {
+        int hash = hash(tuple, length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != EMPTY) {
+            int id = table[slot];
+            if (hashes[id] == hash && sameTuple(id, tuple, length))
+                return id;
+            slot = (slot + 1) & mask;
+        }
+        int id = add(tuple, length, hash);
+        table[slot] = id;
+        if (size * 2 > table.length)
+            rehash();
+        return id;
+    }
+
+    /**
+     * Returns the number of distinct tuples interned so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the length of the tuple of the given id.
+     */
+    public int length(int id) {
+        return starts[id + 1] - starts[id];
+    }
+
+    /**
+     * Returns the value at the given position of the tuple of the given id.
+     */
+    public int get(int id, int index) {
+        return pool[starts[id] + index];
+    }
+
+    private boolean sameTuple(int id, int[] tuple, int length) {
+        int start = starts[id];
+        if (starts[id + 1] - start != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (pool[start + i] != tuple[i])
+                return false;
+        return true;
+    }
+
+    private int add(int[] tuple, int length, int hash) {
+        if (poolSize + length > pool.length)
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+        System.arraycopy(tuple, 0, pool, poolSize, length);
+        poolSize += length;
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            starts = Arrays.copyOf(starts, hashes.length + 1);
+        }
+        hashes[size] = hash;
+        starts[size + 1] = poolSize;
+        return size++;
+    }
+
+    private void rehash() {
+        int[] newTable = newTable(table.length * 2);
+        int mask = newTable.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (newTable[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            newTable[slot] = id;
+        }
+        table = newTable;
+    }
+
+    private static int hash(int[] tuple, int length) {
+        int h = length;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + tuple[i];
+        // Spread the bits, the table is indexed by the lowest ones.
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
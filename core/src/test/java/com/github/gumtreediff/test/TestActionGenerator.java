@@ -31,6 +31,7 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class TestActionGenerator {
@@ -75,6 +76,27 @@ public class TestActionGenerator {
         assertEquals("0@@g", a4.getNode().toShortString());
     }
 
+    @Test
+    public void testTreesUntouched() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.getFirst().getRoot();
+        ITree dst = trees.getSecond().getRoot();
+        String srcBefore = src.toTreeString();
+        MappingStore ms = new MappingStore();
+        ms.link(src.getChild(1), dst.getChild(0));
+        ms.link(src.getChild(0), dst.getChild(1).getChild(0));
+
+        // The root of the destination is inserted, and the source is moved below its new nodes
+        ActionGenerator ag = new ActionGenerator(src, dst, ms);
+        List<Action> actions = ag.generate();
+        assertTrue(actions.get(0) instanceof Insert);
+        assertEquals(dst, actions.get(0).getNode());
+        assertEquals(srcBefore, src.toTreeString());
+        assertNull(src.getParent());
+        assertNull(dst.getParent());
+        assertEquals(actions.toString(), new ActionGenerator(src, dst, ms).generate().toString());
+    }
+
     @Test
     public void testWithZsCustomExample() {
         Pair<TreeContext, TreeContext> trees = TreeLoader.getZsCustomPair();
@@ -93,4 +115,38 @@ public class TestActionGenerator {
         System.out.println(actions);
     }
 
+    @Test
+    public void testWithWideNode() {
+        int n = 5000;
+        TreeContext srcCtx = new TreeContext();
+        ITree src = srcCtx.createTree(0, "", null);
+        srcCtx.setRoot(src);
+        for (int i = 0; i < n; i++)
+            src.addChild(srcCtx.createTree(1, Integer.toString(i), null));
+        srcCtx.validate();
+
+        // The first child moves to the end, and the two last children are swapped
+        TreeContext dstCtx = new TreeContext();
+        ITree dst = dstCtx.createTree(0, "", null);
+        dstCtx.setRoot(dst);
+        for (int i = 1; i < n - 2; i++)
+            dst.addChild(dstCtx.createTree(1, Integer.toString(i), null));
+        for (int i: new int[] {n - 1, n - 2, 0})
+            dst.addChild(dstCtx.createTree(1, Integer.toString(i), null));
+        dstCtx.validate();
+
+        MappingStore ms = new MappingStore();
+        ms.link(src, dst);
+        for (ITree c: dst.getChildren())
+            ms.link(src.getChild(Integer.parseInt(c.getLabel())), c);
+
+        ActionGenerator ag = new ActionGenerator(src, dst, ms);
+        List<Action> actions = ag.generate();
+        assertEquals(2, actions.size());
+        assertTrue(actions.get(0) instanceof Move);
+        assertEquals("0", actions.get(0).getNode().getLabel());
+        assertTrue(actions.get(1) instanceof Move);
+        assertEquals(Integer.toString(n - 2), actions.get(1).getNode().getLabel());
+    }
+
 }
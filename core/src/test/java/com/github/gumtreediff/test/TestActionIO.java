@@ -20,8 +20,9 @@
 
 package com.github.gumtreediff.test;
 
+import com.github.gumtreediff.actions.ActionCounter;
 import com.github.gumtreediff.actions.ActionGenerator;
-import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.actions.model.*;
 import com.github.gumtreediff.io.ActionsIoUtils;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
@@ -32,8 +33,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+
 public class TestActionIO {
     private TreeContext src;
     private TreeContext dst;
@@ -69,4 +73,36 @@ public class TestActionIO {
     public void testBasicJsonActions() throws IOException {
         System.out.println(ActionsIoUtils.toJson(src, actions, mappings));
     }
+
+    @Test
+    public void testStreamedActions() throws Exception {
+        StringWriter text = new StringWriter();
+        ActionsIoUtils.ActionWriter textWriter = ActionsIoUtils.textWriter(src, mappings, text);
+        new ActionGenerator(src.getRoot(), dst.getRoot(), mappings).generate(textWriter);
+        textWriter.finish();
+        assertEquals(ActionsIoUtils.toText(src, actions, mappings).toString(), text.toString());
+
+        StringWriter xml = new StringWriter();
+        ActionsIoUtils.ActionWriter xmlWriter = ActionsIoUtils.xmlWriter(src, mappings, xml);
+        new ActionGenerator(src.getRoot(), dst.getRoot(), mappings).generate(xmlWriter);
+        xmlWriter.finish();
+        assertEquals(ActionsIoUtils.toXml(src, actions, mappings).toString(), xml.toString());
+
+        StringWriter json = new StringWriter();
+        ActionsIoUtils.ActionWriter jsonWriter = ActionsIoUtils.jsonWriter(src, mappings, json);
+        new ActionGenerator(src.getRoot(), dst.getRoot(), mappings).generate(jsonWriter);
+        jsonWriter.finish();
+        assertEquals(ActionsIoUtils.toJson(src, actions, mappings).toString(), json.toString());
+    }
+
+    @Test
+    public void testCountedActions() {
+        ActionCounter counter = new ActionCounter();
+        new ActionGenerator(src.getRoot(), dst.getRoot(), mappings).generate(counter);
+        assertEquals(actions.size(), counter.getTotal());
+        assertEquals(actions.stream().filter(a -> a instanceof Insert).count(), counter.getInserts());
+        assertEquals(actions.stream().filter(a -> a instanceof Delete).count(), counter.getDeletes());
+        assertEquals(actions.stream().filter(a -> a instanceof Update).count(), counter.getUpdates());
+        assertEquals(actions.stream().filter(a -> a instanceof Move).count(), counter.getMoves());
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.gumtreediff.actions.ActionGenerator;
+import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.matchers.ArrayMappingStore;
+import com.github.gumtreediff.matchers.Mapping;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Pair;
+import com.github.gumtreediff.tree.TreeContext;
+
+public class TestArrayMappingStore {
+
+    @Test
+    public void testLinkUnlink() {
+        ITree src = TreeLoader.getDummySrc();
+        ITree dst = TreeLoader.getDummyDst();
+        ArrayMappingStore store = new ArrayMappingStore(src, dst);
+        ITree s = src.getChildren().get(0);
+        ITree d = dst.getChildren().get(0);
+
+        store.link(s, d);
+        assertEquals(1, store.size());
+        assertTrue(store.has(s, d));
+        assertTrue(store.hasSrc(s));
+        assertTrue(store.hasDst(d));
+        assertSame(d, store.getDstForSrc(s));
+        assertSame(s, store.getSrcForDst(d));
+        assertNull(store.getDstForSrc(src));
+
+        MappingStore copy = store.copy();
+        store.unlink(s, d);
+        assertEquals(0, store.size());
+        assertFalse(store.hasSrc(s));
+        assertFalse(store.hasDst(d));
+        assertFalse(store.iterator().hasNext());
+        assertEquals(1, copy.size());
+        assertTrue(copy.has(s, d));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForeignNode() {
+        ITree src = TreeLoader.getDummySrc();
+        ITree dst = TreeLoader.getDummyDst();
+        ArrayMappingStore store = new ArrayMappingStore(src, dst);
+        store.link(src.deepCopy(), dst);
+    }
+
+    @Test
+    public void testSameMappingsAsHashStore() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.getFirst().getRoot();
+        ITree dst = trees.getSecond().getRoot();
+        Matcher m = Matchers.getInstance().getMatcher("gumtree", src, dst, new ArrayMappingStore(src, dst));
+        m.match();
+        MappingStore mappings = m.getMappings();
+
+        trees = TreeLoader.getActionPair();
+        ITree refSrc = trees.getFirst().getRoot();
+        ITree refDst = trees.getSecond().getRoot();
+        Matcher ref = Matchers.getInstance().getMatcher("gumtree", refSrc, refDst);
+        ref.match();
+        MappingStore refMappings = ref.getMappings();
+
+        assertEquals(refMappings.size(), mappings.size());
+        int count = 0;
+        for (Mapping mapping: mappings) {
+            ITree refDstNode = refMappings.getDstForSrc(refSrc.getTrees().get(
+                    src.getTrees().indexOf(mapping.getFirst())));
+            assertNotNull(refDstNode);
+            assertEquals(mapping.getSecond().getId(), refDstNode.getId());
+            count++;
+        }
+        assertEquals(mappings.size(), count);
+
+        List<Action> actions = new ActionGenerator(src, dst, mappings).generate();
+        List<Action> refActions = new ActionGenerator(refSrc, refDst, refMappings).generate();
+        assertEquals(refActions.size(), actions.size());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.heuristic.gt.GreedyBottomUpMatcher;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.TreeUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestGreedyBottomUpMatcher {
+
+    @Test
+    public void testSubtreeWithParent() {
+        ITree src = tree("a", tree("b", tree("x"), tree("y")), tree("c"));
+        ITree dst = tree("a", tree("b", tree("x"), tree("y"), tree("z")), tree("c"));
+        ITree parent = tree("p", dst);
+        TreeUtils.numbering(src.preOrder());
+        TreeUtils.numbering(parent.preOrder());
+
+        MappingStore mappings = new MappingStore();
+        mappings.link(src.getChild(0).getChild(0), dst.getChild(0).getChild(0));
+        mappings.link(src.getChild(0).getChild(1), dst.getChild(0).getChild(1));
+        new GreedyBottomUpMatcher(src, dst, mappings).match();
+        assertTrue(mappings.has(src.getChild(0), dst.getChild(0)));
+    }
+
+    private static ITree tree(String label, ITree... children) {
+        ITree t = new Tree(0, label);
+        for (ITree c: children)
+            t.addChild(c);
+        return t;
+    }
+}
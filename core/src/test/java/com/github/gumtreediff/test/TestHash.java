@@ -22,8 +22,18 @@ package com.github.gumtreediff.test;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.hash.HashConsingGenerator;
+import com.github.gumtreediff.tree.hash.HashDictionaryGenerator;
+import com.github.gumtreediff.tree.hash.HashGenerator;
 import com.github.gumtreediff.tree.hash.RollingHashGenerator;
+import com.github.gumtreediff.tree.hash.TupleDictionary;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -50,4 +60,52 @@ public class TestHash {
         assertEquals(-295599963, root.getHash()); // for a
     }
 
+    @Test
+    public void testHashConsing() {
+        List<ITree> trees = new ArrayList<>(TreeLoader.getDummyBig().getTrees());
+        trees.addAll(TreeLoader.getDummyBig().getTrees());
+        trees.addAll(TreeLoader.getDummySrc().getTrees());
+        trees.addAll(TreeLoader.getDummyDst().getTrees());
+
+        HashGenerator dictionary = new HashDictionaryGenerator();
+        Map<ITree, Integer> expected = new HashMap<>();
+        for (ITree t: trees) {
+            if (t.isRoot())
+                dictionary.hash(t);
+            expected.put(t, t.getHash());
+        }
+
+        HashGenerator consing = new HashConsingGenerator();
+        for (ITree t: trees)
+            if (t.isRoot())
+                consing.hash(t);
+
+        int max = -1;
+        for (ITree a: trees) {
+            max = Math.max(max, a.getHash());
+            for (ITree b: trees)
+                assertEquals(expected.get(a).equals(expected.get(b)), a.getHash() == b.getHash());
+        }
+        assertEquals(new HashSet<>(expected.values()).size(), max + 1);
+    }
+
+    @Test
+    public void testTupleDictionary() {
+        TupleDictionary dictionary = new TupleDictionary();
+        int[] tuple = new int[3];
+        for (int i = 0; i < 10000; i++) {
+            tuple[0] = i;
+            tuple[1] = i % 7;
+            assertEquals(i, dictionary.intern(tuple, 1 + i % 3));
+        }
+        for (int i = 0; i < 10000; i++) {
+            tuple[0] = i;
+            tuple[1] = i % 7;
+            assertEquals(i, dictionary.intern(tuple, 1 + i % 3));
+        }
+        assertEquals(10000, dictionary.size());
+        assertEquals(3, dictionary.length(9998));
+        assertEquals(9998, dictionary.get(9998, 0));
+    }
+
 }
@@ -0,0 +1,62 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.heuristic.fgp.SimpleCtxHistogramMatcher;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.TreeUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class TestHistogramMatcher {
+
+    @Test
+    public void testLargeShapeBucket() {
+        // 300 x 300 nodes with the same shape and different labels, well over the pair limit of a bucket
+        int n = 300;
+        ITree src = tree(0, "root");
+        ITree dst = tree(0, "root");
+        for (int i = 0; i < n; i++) {
+            src.addChild(tree(1, "", tree(2, "a" + i), tree(3, "x")));
+            dst.addChild(tree(1, "", tree(2, "b" + i), tree(3, "x")));
+        }
+        // So that the roots have different shapes and are opened
+        dst.addChild(tree(4, "y"));
+        TreeUtils.numbering(src.preOrder());
+        TreeUtils.numbering(dst.preOrder());
+
+        Matcher m = new SimpleCtxHistogramMatcher(src, dst, new MappingStore());
+        m.match();
+        for (int i = 0; i < n; i++)
+            assertTrue(m.getMappings().has(src.getChild(i), dst.getChild(i)));
+    }
+
+    private static ITree tree(int type, String label, ITree... children) {
+        ITree t = new Tree(type, label);
+        for (ITree c: children)
+            t.addChild(c);
+        return t;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.algo.LabelSimilarity;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import org.junit.Test;
+import org.simmetrics.StringMetric;
+import org.simmetrics.StringMetrics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestLabelSimilarity {
+
+    private static final String[] LABELS = {"", "a", "ab", "foo", "foobar", "bar", "##a", "aaaa", "aaab",
+        "getLabel", "setLabel", "getLabelId", "label", "x", "y", "i", "i", "foo"};
+
+    @Test
+    public void testSameAsQGramsDistance() {
+        StringMetric metric = StringMetrics.qGramsDistance();
+        LabelSimilarity sim = new LabelSimilarity();
+        for (String a: LABELS)
+            for (String b: LABELS)
+                assertEquals(a + " / " + b, metric.compare(a, b), sim.similarity(a, b), 0F);
+    }
+
+    @Test
+    public void testSimilarPairs() {
+        Random random = new Random(1);
+        LabelSimilarity sim = new LabelSimilarity();
+        for (double threshold: new double[] {0.2D, 0.5D, 0.8D}) {
+            int[] src = randomLabels(sim, random, 200);
+            int[] dst = randomLabels(sim, random, 150);
+            long[] expected = new long[src.length * dst.length];
+            int n = 0;
+            for (int i = 0; i < src.length; i++)
+                for (int j = 0; j < dst.length; j++)
+                    if (sim.similarity(src[i], dst[j]) > threshold)
+                        expected[n++] = (long) i * dst.length + j;
+            assertArrayEquals(Arrays.copyOf(expected, n), sim.similarPairs(src, dst, threshold));
+        }
+    }
+
+    @Test
+    public void testTreeLabelIds() {
+        TreeContext ctx = new TreeContext();
+        ITree a = ctx.createTree(0, "foobar", null);
+        ITree b = ctx.createTree(0, "foo", null);
+        LabelSimilarity sim = new LabelSimilarity(ctx.getLabelDictionary());
+        assertEquals(a.getLabelId(), sim.getLabelId(a));
+        assertEquals(b.getLabelId(), sim.getLabelId(b));
+        assertEquals(sim.getLabelId("foo"), sim.getLabelId(b));
+        assertEquals(StringMetrics.qGramsDistance().compare("foobar", "foo"),
+                sim.similarity(sim.getLabelId(a), sim.getLabelId(b)), 0F);
+    }
+
+    private static int[] randomLabels(LabelSimilarity sim, Random random, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder b = new StringBuilder();
+            for (int k = random.nextInt(7); k > 0; k--)
+                b.append((char) ('a' + random.nextInt(4)));
+            ids[i] = sim.getLabelId(b.toString());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.optimal.MemoisedMatcher;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Pair;
+import com.github.gumtreediff.tree.TreeContext;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestMemoisedMatcher {
+
+    @Test
+    public void testBoundedMemo() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getDummyPair();
+        ITree src = trees.getFirst().getRoot();
+        ITree dst = trees.getSecond().getRoot();
+        MemoisedMatcher unbounded = new MemoisedMatcher(src, dst, new MappingStore(), 0);
+        unbounded.match();
+        MemoisedMatcher.MemoStats stats = unbounded.getStats();
+        assertSame(stats, unbounded.getMappings().getMatchStats());
+        assertEquals(unbounded.getMappingSet().size(), stats.getMappingCount());
+        assertEquals(0, stats.getMemoEvictions());
+        assertTrue(stats.getDistCount() <= stats.getTotalDistCount());
+
+        // Evicted edits are recomputed, so a tiny memo gives the same mappings
+        MemoisedMatcher bounded = new MemoisedMatcher(src, dst, new MappingStore(), 2);
+        bounded.match();
+        assertEquals(unbounded.getMappingSet(), bounded.getMappingSet());
+        assertEquals(stats.getEditDistance(), bounded.getStats().getEditDistance(), 0D);
+        assertTrue(bounded.getStats().getMemoEvictions() > 0);
+    }
+
+    @Test
+    public void testParallelEdits() {
+        Pair<TreeContext, TreeContext> actions = TreeLoader.getActionPair();
+        ITree big = TreeLoader.getDummyBig();
+        ITree small = TreeLoader.getDummySrc();
+        ITree[][] pairs = {{big, small}, {small, big}, {big, TreeLoader.getDummyBig()},
+                {actions.getFirst().getRoot(), actions.getSecond().getRoot()}};
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (ITree[] pair: pairs) {
+                MemoisedMatcher sequential = new MemoisedMatcher(pair[0], pair[1], new MappingStore(), 0);
+                sequential.setParallelism(pool, Long.MAX_VALUE, Long.MAX_VALUE);
+                sequential.match();
+
+                // Every pair of subtrees is forked
+                MemoisedMatcher parallel = new MemoisedMatcher(pair[0], pair[1], new MappingStore(), 0);
+                parallel.setParallelism(pool, 0, 0);
+                parallel.match();
+
+                assertEquals(sequential.getMappingSet(), parallel.getMappingSet());
+                MemoisedMatcher.MemoStats stats = parallel.getStats();
+                assertEquals(sequential.getStats().getEditDistance(), stats.getEditDistance(), 0D);
+                // Each pair of unique subtrees is computed exactly once, as with the sequential memo
+                assertEquals(sequential.getStats().getEditCount(), stats.getEditCount());
+                assertEquals(parallel.getMappingSet().size(), stats.getMappingCount());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
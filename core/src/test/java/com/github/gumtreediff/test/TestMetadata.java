@@ -149,6 +149,39 @@ public class TestMetadata {
         assertEquals(Sets.newHashSet(key, v2), tc.getSerializers().exports());
     }
 
+    @Test
+    public void testSchema() throws Exception {
+        ITree other = tc.createTree(1, "", "");
+        someNode.addChild(other);
+        assertNull(someNode.setMetadata(v1, 1));
+        assertNull(other.setMetadata(v2, 2));
+        assertNull(other.setMetadata(v1, 3));
+        assertEquals(0, tc.getMetadataSchema().getSlot(v1));
+        assertEquals(1, tc.getMetadataSchema().getSlot(v2));
+        assertEquals(1, someNode.getMetadata(v1));
+        assertNull(someNode.getMetadata(v2));
+        assertNull(someNode.getMetadata(v3));
+
+        // Removed entries are not iterated
+        assertEquals(2, other.setMetadata(v2, null));
+        Iterator<Entry<String, Object>> it = other.getMetadata();
+        assertTrue(it.hasNext());
+        Entry<String, Object> e = it.next();
+        assertEquals(v1, e.getKey());
+        assertEquals(3, e.getValue());
+        assertFalse(it.hasNext());
+
+        // Copies do not share their metadata with the original
+        ITree copy = someNode.deepCopy();
+        assertEquals(1, copy.setMetadata(v1, 4));
+        assertEquals(1, someNode.getMetadata(v1));
+
+        TreeContext otherContext = new TreeContext();
+        otherContext.createTree(0, "", "").setMetadata(v3, 0);
+        assertEquals(0, otherContext.getMetadataSchema().getSlot(v3));
+        assertEquals(-1, tc.getMetadataSchema().getSlot(v3));
+    }
+
     @Test(expected = RuntimeException.class)
     public void testExportInvalid1() {
         tc.export("Test key");
@@ -1,5 +1,6 @@
 package com.github.gumtreediff.test;
 
+import com.github.gumtreediff.matchers.heuristic.fgp.HistogramInvertedIndex;
 import com.github.gumtreediff.matchers.heuristic.fgp.NodeHistogram;
 import junit.framework.TestCase;
 
@@ -186,6 +187,42 @@ public class TestNodeHistogram extends TestCase {
         assertEquals(new NodeHistogram(), a.scale(0));
     }
 
+    public void testAccumulator() {
+        NodeHistogram a = new NodeHistogram(Arrays.asList(new Integer[] {1, 2, 4, 8}),
+                Arrays.asList(new Double[] {3.0, 5.0, 7.0, 9.0}));
+        NodeHistogram b = new NodeHistogram(Arrays.asList(new Integer[] {0, 2, 4, 11}),
+                Arrays.asList(new Double[] {13.0, 15.0, 17.0, 19.0}));
+        NodeHistogram.Accumulator acc = new NodeHistogram.Accumulator();
+        acc.add(b);
+        acc.add(a);
+        assertEquals(a.add(b), acc.toHistogram());
+        acc.addScaled(a, 0.0);
+        assertEquals(a.add(b), acc.toHistogram());
+
+        acc.clear();
+        acc.set(3, 1.0);
+        acc.addScaled(a, 0.5);
+        acc.addScaled(b, 0.5);
+        NodeHistogram single = new NodeHistogram();
+        single.set(3, 1.0);
+        assertEquals(single.add(a.scale(0.5)).add(b.scale(0.5)), acc.toHistogram());
+    }
+
+    public void testJaccardSimilarityOfSums() {
+        NodeHistogram a = new NodeHistogram(Arrays.asList(new Integer[] {1, 2, 4, 8}),
+                Arrays.asList(new Double[] {3.0, 5.0, 7.0, 9.0}));
+        NodeHistogram b = new NodeHistogram(Arrays.asList(new Integer[] {0, 2, 4, 11}),
+                Arrays.asList(new Double[] {13.0, 15.0, 17.0, 19.0}));
+        NodeHistogram c = new NodeHistogram(Arrays.asList(new Integer[] {1, 4, 11}),
+                Arrays.asList(new Double[] {1.0, 2.0, 3.0}));
+        double expected = a.scale(0.5).add(b).jaccardSimilarity(c.add(a.scale(2.0)));
+        assertEquals(expected, NodeHistogram.jaccardSimilarityOfSums(a, 0.5, b, 1.0, c, 1.0, a, 2.0), 1.0e-12);
+        NodeHistogram ab = a.add(b);
+        assertEquals(ab.sub(a).jaccardSimilarity(ab.sub(c)),
+                NodeHistogram.jaccardSimilarityOfSums(ab, 1.0, a, -1.0, ab, 1.0, c, -1.0));
+        assertEquals(ab.sub(a).getSum(), NodeHistogram.sumOfSum(ab, 1.0, a, -1.0));
+    }
+
     public void testAbs() {
         NodeHistogram a = new NodeHistogram(Arrays.asList(new Integer[] {1, 2, 4, 8}),
                 Arrays.asList(new Double[] {3.0, -5.0, 7.0, -9.0}));
@@ -230,4 +267,35 @@ public class TestNodeHistogram extends TestCase {
                 Arrays.asList(new Double[] {13.0, 5.0, 17.0, 9.0}));
         assertEquals(12.0 / 76.0, a.jaccardSimilarity(b));
     }
+
+    public void testInvertedIndex() {
+        NodeHistogram a = new NodeHistogram(Arrays.asList(new Integer[] {1, 2, 4, 8}),
+                Arrays.asList(new Double[] {3.0, 15.0, 7.0, 19.0}));
+        NodeHistogram b = new NodeHistogram(Arrays.asList(new Integer[] {0, 2, 4, 11}),
+                Arrays.asList(new Double[] {13.0, 5.0, 17.0, 9.0}));
+        NodeHistogram c = new NodeHistogram(Arrays.asList(new Integer[] {0, 11}),
+                Arrays.asList(new Double[] {1.0, 2.0}));
+        NodeHistogram d = new NodeHistogram(Arrays.asList(new Integer[] {1, 8}),
+                Arrays.asList(new Double[] {3.0, 1.0}));
+        HistogramInvertedIndex index = new HistogramInvertedIndex(Arrays.asList(b, c, d, a));
+        assertEquals(4, index.size());
+
+        // `c` shares no feature with `a`, so it is not a candidate
+        assertEquals(3, index.query(a, 0.0));
+        assertEquals(0, index.candidate(0));
+        assertEquals(a.jaccardSimilarity(b), index.similarity(0), 1.0e-12);
+        assertEquals(2, index.candidate(1));
+        assertEquals(a.jaccardSimilarity(d), index.similarity(1), 1.0e-12);
+        assertEquals(3, index.candidate(2));
+        assertEquals(1.0, index.similarity(2), 1.0e-12);
+
+        assertEquals(2, index.query(a, 0.15));
+        assertEquals(0, index.candidate(0));
+        assertEquals(3, index.candidate(1));
+
+        assertEquals(0, index.query(new NodeHistogram(), 0.0));
+        NodeHistogram unknown = new NodeHistogram();
+        unknown.set(100, 1.0);
+        assertEquals(0, index.query(unknown, 0.0));
+    }
 }
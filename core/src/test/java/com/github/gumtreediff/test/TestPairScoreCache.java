@@ -0,0 +1,33 @@
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.matchers.heuristic.fgp.PairScoreCache;
+import junit.framework.TestCase;
+
+public class TestPairScoreCache extends TestCase {
+    public void testGetPut() {
+        PairScoreCache cache = new PairScoreCache(1L << 20);
+        assertEquals(PairScoreCache.MISSING, cache.get(0L));
+        for (long key = 0; key < 10000; key++) {
+            cache.put(key * 7919L + (1L << 40), key * 0.5);
+        }
+        for (long key = 0; key < 10000; key++) {
+            assertEquals(key * 0.5, cache.get(key * 7919L + (1L << 40)));
+        }
+        cache.put(0L, 0.25);
+        assertEquals(0.25, cache.get(0L));
+        cache.put(0L, 0.75);
+        assertEquals(0.75, cache.get(0L));
+    }
+
+    public void testBoundedSize() {
+        PairScoreCache cache = new PairScoreCache(0L);
+        for (long key = 0; key < 100000; key++) {
+            cache.put(key, 1.0);
+            // Recently used entries survive eviction
+            assertEquals(1.0, cache.get(0L));
+        }
+        assertTrue(cache.size() <= 2 * (1 << 12));
+        assertEquals(PairScoreCache.MISSING, cache.get(1L));
+        assertEquals(1.0, cache.get(99999L));
+    }
+}
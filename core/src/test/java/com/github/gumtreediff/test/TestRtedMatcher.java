@@ -22,12 +22,18 @@ package com.github.gumtreediff.test;
 
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.optimal.rted.RtedAlgorithm;
 import com.github.gumtreediff.matchers.optimal.rted.RtedMatcher;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.tree.Pair;
 import com.github.gumtreediff.tree.TreeContext;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -48,4 +54,53 @@ public class TestRtedMatcher {
         assertTrue(matcher.getMappings().has(src.getChild(0).getChild(2), dst.getChild(2)));
     }
 
+    @Test
+    public void testReusedWorkspace() {
+        ITree big = TreeLoader.getDummyBig();
+        ITree small = TreeLoader.getDummySrc();
+        ITree[][] pairs = {{big, small}, {small, big}, {small, small}, {big, big}, {small, TreeLoader.getDummyDst()}};
+        RtedAlgorithm reused = new RtedAlgorithm(1D, 1D, 1D);
+        for (ITree[] pair: pairs) {
+            double expected = new RtedAlgorithm(1D, 1D, 1D).nonNormalizedTreeDist(pair[0], pair[1]);
+            assertEquals(expected, reused.nonNormalizedTreeDist(pair[0], pair[1]), 0D);
+        }
+
+        // The matcher reuses the engine of its thread
+        new RtedMatcher(big, small, new MappingStore()).match();
+        testRtedMatcher();
+    }
+
+    @Test
+    public void testParallelStrategy() {
+        Pair<TreeContext, TreeContext> actions = TreeLoader.getActionPair();
+        ITree big = TreeLoader.getDummyBig();
+        ITree small = TreeLoader.getDummySrc();
+        ITree[][] pairs = {{big, small}, {small, big}, {big, TreeLoader.getDummyBig()},
+                {small, TreeLoader.getDummyDst()}, {actions.getFirst().getRoot(), actions.getSecond().getRoot()}};
+        // Distances computed by the original sequential algorithm
+        double[] distances = {8D, 8D, 0D, 4D, 6D};
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            RtedAlgorithm sequential = new RtedAlgorithm(1D, 1D, 1D);
+            sequential.setParallelism(pool, Long.MAX_VALUE, Long.MAX_VALUE);
+            // Every subtree of the left tree is a task
+            RtedAlgorithm parallel = new RtedAlgorithm(1D, 1D, 1D);
+            parallel.setParallelism(pool, 0, 0);
+            for (int i = 0; i < pairs.length; i++) {
+                assertEquals(distances[i], sequential.nonNormalizedTreeDist(pairs[i][0], pairs[i][1]), 0D);
+                assertEquals(distances[i], parallel.nonNormalizedTreeDist(pairs[i][0], pairs[i][1]), 0D);
+                assertEquals(toString(sequential.computeEditMapping()), toString(parallel.computeEditMapping()));
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<String> toString(List<int[]> mapping) {
+        List<String> pairs = new ArrayList<>();
+        for (int[] pair: mapping)
+            pairs.add(Arrays.toString(pair));
+        return pairs;
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.algo.StringAlgorithms;
+import com.github.gumtreediff.algo.StringAlgorithms.LcsAlgorithm;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeUtils;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestStringAlgorithms {
+
+    @Test
+    public void testLcss() {
+        for (LcsAlgorithm a: LcsAlgorithm.values()) {
+            List<int[]> lcs = StringAlgorithms.lcss("abcbdab", "bdcaba", a);
+            assertEquals(4, lcs.size());
+            assertCommonSubsequence("abcbdab", "bdcaba", lcs);
+            assertEquals(0, StringAlgorithms.lcss("", "abc", a).size());
+            assertEquals(0, StringAlgorithms.lcss("abc", "def", a).size());
+            assertEquals(3, StringAlgorithms.lcss("abc", "abc", a).size());
+        }
+    }
+
+    @Test
+    public void testLargeLcss() {
+        Random r = new Random(42);
+        String s0 = randomString(r, 3000);
+        String s1 = randomString(r, 2500);
+        int expected = StringAlgorithms.lcss(s0, s1, LcsAlgorithm.TABLE).size();
+        for (LcsAlgorithm a: LcsAlgorithm.values()) {
+            List<int[]> lcs = StringAlgorithms.lcss(s0, s1, a);
+            assertEquals(expected, lcs.size());
+            assertCommonSubsequence(s0, s1, lcs);
+        }
+    }
+
+    @Test
+    public void testNearIdenticalLcss() {
+        Random r = new Random(42);
+        StringBuilder b = new StringBuilder(randomString(r, 5000));
+        for (int i = 0; i < 20; i++)
+            b.setCharAt(r.nextInt(b.length()), 'z');
+        b.insert(1000, "zzz");
+        b.delete(4000, 4010);
+        String s0 = randomString(new Random(42), 5000);
+        String s1 = b.toString();
+        int expected = StringAlgorithms.lcss(s0, s1, LcsAlgorithm.TABLE).size();
+        for (LcsAlgorithm a: LcsAlgorithm.values()) {
+            List<int[]> lcs = StringAlgorithms.lcss(s0, s1, a);
+            assertEquals(expected, lcs.size());
+            assertCommonSubsequence(s0, s1, lcs);
+        }
+    }
+
+    @Test
+    public void testHunks() {
+        for (LcsAlgorithm a: LcsAlgorithm.values()) {
+            List<int[]> hunks = StringAlgorithms.hunks("foobar", "foo_bar", a);
+            assertEquals(2, hunks.size());
+            assertArrayEquals(new int[] {0, 3, 0, 3}, hunks.get(0));
+            assertArrayEquals(new int[] {3, 6, 4, 7}, hunks.get(1));
+        }
+    }
+
+    @Test
+    public void testTreeLcss() {
+        List<ITree> src = TreeUtils.preOrder(TreeLoader.getDummySrc());
+        List<ITree> dst = TreeUtils.preOrder(TreeLoader.getDummyDst());
+        int expected = StringAlgorithms.lcss(src, dst, LcsAlgorithm.TABLE).size();
+        for (LcsAlgorithm a: LcsAlgorithm.values()) {
+            List<int[]> lcs = StringAlgorithms.lcss(src, dst, a);
+            assertEquals(expected, lcs.size());
+            for (int[] m: lcs)
+                assertTrue(src.get(m[0]).isSimilar(dst.get(m[1])));
+        }
+    }
+
+    private static String randomString(Random r, int length) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < length; i++)
+            b.append((char) ('a' + r.nextInt(4)));
+        return b.toString();
+    }
+
+    private static void assertCommonSubsequence(String s0, String s1, List<int[]> lcs) {
+        int last0 = -1;
+        int last1 = -1;
+        for (int[] m: lcs) {
+            assertTrue(m[0] > last0 && m[1] > last1);
+            assertEquals(s0.charAt(m[0]), s1.charAt(m[1]));
+            last0 = m[0];
+            last1 = m[1];
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MultiMappingStore;
+import com.github.gumtreediff.matchers.heuristic.gt.SubtreeMatcher;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.TreeUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSubtreeMatcher {
+
+    @Test
+    public void testBucketedClones() {
+        ITree src = repeated(60, 3, 2);
+        ITree dst = repeated(70, 4, 3);
+        MultiMappingStore expected = nestedLoopClones(src, dst);
+        // Some trees have several clones
+        assertTrue(expected.getMappings().size() > expected.getSrcs().size());
+
+        CapturingMatcher sequential = new CapturingMatcher(src, dst);
+        sequential.setParallelMinTrees(Integer.MAX_VALUE);
+        sequential.match();
+        assertEquals(expected.getMappings(), sequential.clones.getMappings());
+
+        // Every level is compared in parallel
+        CapturingMatcher parallel = new CapturingMatcher(src, dst);
+        parallel.setParallelMinTrees(0);
+        parallel.match();
+        assertEquals(expected.getMappings(), parallel.clones.getMappings());
+    }
+
+    private static class CapturingMatcher extends SubtreeMatcher {
+
+        private MultiMappingStore clones;
+
+        private CapturingMatcher(ITree src, ITree dst) {
+            super(src, dst, new MappingStore());
+        }
+
+        @Override
+        public void filterMappings(MultiMappingStore mmappings) {
+            clones = mmappings;
+        }
+    }
+
+    /**
+     * The clones linked by the original nested loop over the trees of the same height, from the highest.
+     */
+    private static MultiMappingStore nestedLoopClones(ITree src, ITree dst) {
+        MultiMappingStore mappings = new MultiMappingStore();
+        List<ITree> srcs = new ArrayList<>();
+        List<ITree> dsts = new ArrayList<>();
+        addCandidate(srcs, src);
+        addCandidate(dsts, dst);
+        while (!srcs.isEmpty() && !dsts.isEmpty()) {
+            int srcHeight = maxHeight(srcs);
+            int dstHeight = maxHeight(dsts);
+            if (srcHeight != dstHeight) {
+                if (srcHeight > dstHeight)
+                    open(srcs, take(srcs, srcHeight));
+                else
+                    open(dsts, take(dsts, dstHeight));
+                continue;
+            }
+            List<ITree> hSrcs = take(srcs, srcHeight);
+            List<ITree> hDsts = take(dsts, dstHeight);
+            List<ITree> unmatchedSrcs = new ArrayList<>(hSrcs);
+            List<ITree> unmatchedDsts = new ArrayList<>(hDsts);
+            for (ITree s: hSrcs)
+                for (ITree d: hDsts)
+                    if (s.isClone(d)) {
+                        mappings.link(s, d);
+                        unmatchedSrcs.remove(s);
+                        unmatchedDsts.remove(d);
+                    }
+            open(srcs, unmatchedSrcs);
+            open(dsts, unmatchedDsts);
+        }
+        return mappings;
+    }
+
+    private static void addCandidate(List<ITree> candidates, ITree t) {
+        // Trees lower than gumtree.match.gt.minh are not compared
+        if (t.getHeight() >= 2)
+            candidates.add(t);
+    }
+
+    private static int maxHeight(List<ITree> trees) {
+        int height = -1;
+        for (ITree t: trees)
+            height = Math.max(height, t.getHeight());
+        return height;
+    }
+
+    private static List<ITree> take(List<ITree> trees, int height) {
+        List<ITree> taken = new ArrayList<>();
+        for (ITree t: trees)
+            if (t.getHeight() == height)
+                taken.add(t);
+        trees.removeAll(taken);
+        return taken;
+    }
+
+    private static void open(List<ITree> candidates, List<ITree> trees) {
+        for (ITree t: trees)
+            for (ITree c: t.getChildren())
+                addCandidate(candidates, c);
+    }
+
+    /**
+     * A root with count children drawn from a few shapes, so that many subtrees are clones of each other.
+     */
+    private static ITree repeated(int count, int labels, int kinds) {
+        ITree root = tree("root");
+        for (int k = 0; k < count; k++) {
+            ITree leaf = tree("z" + (k % labels));
+            ITree inner = k % kinds == 0 ? tree("x", tree("y"), leaf) : tree("x", leaf);
+            root.addChild(tree("m" + (k % (labels + 1)), inner, tree("w" + (k % 2))));
+        }
+        root.refresh();
+        TreeUtils.numbering(root.preOrder());
+        return root;
+    }
+
+    private static ITree tree(String label, ITree... children) {
+        ITree t = new Tree(0, label);
+        for (ITree c: children)
+            t.addChild(c);
+        return t;
+    }
+}
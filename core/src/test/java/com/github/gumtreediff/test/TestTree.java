@@ -20,15 +20,25 @@
 
 package com.github.gumtreediff.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.junit.Test;
 
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.LabelDictionary;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.TreeContext;
 import com.github.gumtreediff.tree.TreeUtils;
+import com.github.gumtreediff.tree.hash.FingerprintDictionary;
+import com.github.gumtreediff.tree.hash.HashUtils;
 
 public class TestTree {
 
@@ -79,4 +89,121 @@ public class TestTree {
         assertTrue(tree.isClone(copy));
     }
 
+    @Test
+    public void testFrozenTraversals() {
+        TreeContext ctx = TreeLoader.load("/Dummy_big.xml");
+        ctx.validate();
+        ITree root = ctx.getRoot();
+        for (ITree t: root.getTrees()) {
+            assertEquals(TreeUtils.preOrder(t), t.getTrees());
+            List<ITree> descendants = TreeUtils.preOrder(t);
+            descendants.remove(0);
+            assertEquals(descendants, t.getDescendants());
+            assertEquals(TreeUtils.postOrder(t), toList(t.postOrder()));
+            assertEquals(TreeUtils.preOrder(t), toList(t.preOrder()));
+            assertEquals(TreeUtils.breadthFirst(t), toList(t.breadthFirst()));
+            List<ITree> leaves = new ArrayList<>();
+            for (ITree d: TreeUtils.preOrder(t))
+                if (d.isLeaf())
+                    leaves.add(d);
+            assertEquals(leaves, t.getLeaves());
+        }
+
+        // Views are read-only snapshots
+        List<ITree> trees = root.getTrees();
+        try {
+            trees.remove(0);
+            fail("removing from the frozen getTrees() view should throw");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // A structural change invalidates the orders of the whole tree
+        ITree leaf = ctx.createTree(42, "new", null);
+        ITree parent = root.getChild(0);
+        parent.addChild(leaf);
+        assertTrue(root.getTrees().contains(leaf));
+        assertEquals(trees.size() + 1, root.getTrees().size());
+        assertEquals(TreeUtils.postOrder(parent), toList(parent.postOrder()));
+        ctx.validate();
+        assertEquals(TreeUtils.preOrder(root), root.getTrees());
+        assertEquals(TreeUtils.postOrder(root), toList(root.postOrder()));
+    }
+
+    @Test
+    public void testLabelDictionary() {
+        TreeContext src = new TreeContext();
+        TreeContext dst = new TreeContext();
+        ITree a = src.createTree(0, "foo", null);
+        ITree b = dst.createTree(0, "foo", null);
+        ITree c = dst.createTree(0, "bar", null);
+        src.setRoot(a);
+        dst.setRoot(b);
+        b.addChild(c);
+
+        // Separate dictionaries: labels are compared as strings
+        assertEquals(0, a.getLabelId());
+        assertEquals(0, b.getLabelId());
+        assertEquals(1, c.getLabelId());
+        assertTrue(a.hasSameLabel(b));
+        assertFalse(a.hasSameLabel(c));
+
+        // Shared dictionary: the existing nodes are re-interned
+        LabelDictionary labels = src.getLabelDictionary();
+        dst.setLabelDictionary(labels);
+        assertEquals(a.getLabelId(), b.getLabelId());
+        assertSame(a.getLabel(), b.getLabel());
+        assertEquals("bar", labels.getLabel(c.getLabelId()));
+        assertEquals(2, labels.size());
+        assertTrue(a.isSimilar(b));
+        assertFalse(a.hasSameLabel(c));
+
+        c.setLabel("foo");
+        assertEquals(a.getLabelId(), c.getLabelId());
+        assertTrue(a.hasSameLabel(c));
+
+        // Nodes created outside of a context have no id
+        ITree d = new Tree(0, "foo");
+        assertEquals(LabelDictionary.NO_ID, d.getLabelId());
+        assertTrue(d.hasSameLabel(a));
+        assertTrue(a.hasSameLabel(d));
+    }
+
+    @Test
+    public void testFingerprints() {
+        TreeContext src = new TreeContext();
+        TreeContext dst = new TreeContext();
+        for (TreeContext ctx: new TreeContext[] {src, dst}) {
+            ITree a = ctx.createTree(0, "a", null);
+            a.addChild(ctx.createTree(1, "b", null));
+            a.addChild(ctx.createTree(1, "c", null));
+            ctx.setRoot(a);
+            ctx.validate();
+        }
+        assertSame(HashUtils.DEFAULT_FINGERPRINTS, src.getFingerprints());
+        assertEquals(src.getRoot().getHash(), dst.getRoot().getHash());
+
+        // Shared dictionary: the existing nodes are re-hashed, with dense ids
+        FingerprintDictionary fingerprints = new FingerprintDictionary();
+        src.setFingerprints(fingerprints);
+        dst.setFingerprints(fingerprints);
+        assertSame(fingerprints, dst.getFingerprints());
+        assertEquals(0, src.getRoot().getChild(0).getHash());
+        assertEquals(1, src.getRoot().getChild(1).getHash());
+        assertEquals(2, src.getRoot().getHash());
+        assertEquals(2, dst.getRoot().getHash());
+
+        dst.getRoot().getChild(1).setLabel("b");
+        dst.validate();
+        assertEquals(0, dst.getRoot().getChild(1).getHash());
+        assertEquals(3, dst.getRoot().getHash());
+    }
+
+    private static List<ITree> toList(Iterable<ITree> trees) {
+        List<ITree> list = new ArrayList<>();
+        for (ITree t: trees)
+            list.add(t);
+        return list;
+    }
+
 }
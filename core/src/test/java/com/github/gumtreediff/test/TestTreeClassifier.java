@@ -0,0 +1,95 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2015 Floréal Morandat <florealm@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.actions.ActionGenerator;
+import com.github.gumtreediff.actions.IndexedTreeClassifier;
+import com.github.gumtreediff.actions.RootAndLeavesClassifier;
+import com.github.gumtreediff.actions.RootsClassifier;
+import com.github.gumtreediff.actions.TreeClassifier;
+import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Pair;
+import com.github.gumtreediff.tree.TreeContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTreeClassifier {
+    private TreeContext src;
+    private TreeContext dst;
+    private Matcher m;
+    private List<Action> actions;
+
+    @Before
+    public void setUp() {
+        Pair<TreeContext, TreeContext> p = TreeLoader.getActionPair();
+        src = p.getFirst();
+        dst = p.getSecond();
+        m = Matchers.getInstance().getMatcher(src.getRoot(), dst.getRoot());
+        m.match();
+        actions = new ActionGenerator(src.getRoot(), dst.getRoot(), m.getMappings()).generate();
+    }
+
+    @Test
+    public void testRoots() {
+        TreeClassifier expected = new RootsClassifier(src, dst, m.getMappingSet(), actions);
+        assertSameClasses(expected, new IndexedTreeClassifier(src, dst, m.getMappingSet(), actions, false));
+        assertSameClasses(expected, new IndexedTreeClassifier(src, dst, m, false));
+    }
+
+    @Test
+    public void testSubtreeRoots() {
+        TreeClassifier expected = new RootAndLeavesClassifier(src, dst, m.getMappingSet(), actions);
+        assertSameClasses(expected, new IndexedTreeClassifier(src, dst, m.getMappingSet(), actions, true));
+        assertSameClasses(expected, new IndexedTreeClassifier(src, dst, m, true));
+    }
+
+    @Test
+    public void testContains() {
+        TreeClassifier c = new IndexedTreeClassifier(src, dst, m, true);
+        for (ITree t: src.getRoot().getTrees()) {
+            assertEquals(!m.getMappings().hasSrc(t) && m.getMappings().hasSrc(t.getParent()),
+                    c.getSrcDelTrees().contains(t));
+            assertFalse(c.getDstAddTrees().contains(t));
+        }
+        for (ITree t: dst.getRoot().getTrees())
+            assertFalse(c.getSrcMvTrees().contains(t));
+        assertFalse(c.getSrcUpdTrees().contains("foo"));
+        assertTrue(c.getSrcUpdTrees().size() > 0);
+    }
+
+    private static void assertSameClasses(TreeClassifier expected, TreeClassifier actual) {
+        assertEquals(expected.getSrcDelTrees(), actual.getSrcDelTrees());
+        assertEquals(expected.getDstAddTrees(), actual.getDstAddTrees());
+        assertEquals(expected.getSrcUpdTrees(), actual.getSrcUpdTrees());
+        assertEquals(expected.getDstUpdTrees(), actual.getDstUpdTrees());
+        assertEquals(expected.getSrcMvTrees(), actual.getSrcMvTrees());
+        assertEquals(expected.getDstMvTrees(), actual.getDstMvTrees());
+    }
+}
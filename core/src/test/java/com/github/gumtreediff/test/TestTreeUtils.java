@@ -27,7 +27,11 @@ import java.util.List;
 
 import org.junit.Test;
 
+import com.github.gumtreediff.tree.CompactTree;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.IntervalIndex;
+import com.github.gumtreediff.tree.LabelDictionary;
+import com.github.gumtreediff.tree.TreeContext;
 import com.github.gumtreediff.tree.TreeUtils;
 
 public class TestTreeUtils {
@@ -182,4 +186,103 @@ public class TestTreeUtils {
         Iterator<ITree> it = TreeUtils.breadthFirstIterator(big);
         compareListIterator(lst, it);
     }
+
+    @Test
+    public void testIntervalIndex() {
+        ITree big = TreeLoader.getDummyBig();
+        IntervalIndex index = new IntervalIndex(big);
+        assertEquals(big.getSize(), index.size());
+        for (ITree t: big.getTrees()) {
+            int r = index.getRank(t);
+            assertSame(t, index.getTree(r));
+            assertEquals(t.getSize(), index.getSubtreeSize(r));
+            for (ITree d: big.getTrees())
+                assertEquals(t.getDescendants().contains(d), index.isDescendant(t, d));
+        }
+        assertFalse(index.contains(big.deepCopy()));
+    }
+
+    @Test
+    public void testCompactTree() {
+        ITree big = TreeLoader.getDummyBig();
+        CompactTree tree = new CompactTree(big);
+        List<ITree> preOrder = TreeUtils.preOrder(big);
+        assertEquals(preOrder.size(), tree.size());
+        for (int n = 0; n < tree.size(); n++) {
+            ITree t = tree.getTree(n);
+            assertSame(preOrder.get(n), t);
+            assertEquals(t.getType(), tree.getType(n));
+            assertEquals(t.getSize(), tree.getSize(n));
+            assertEquals(t.getHeight(), tree.getHeight(n));
+            assertEquals(t.getDepth(), tree.getDepth(n));
+            assertEquals(t.getHash(), tree.getHash(n));
+            if (t.isRoot())
+                assertEquals(CompactTree.NONE, tree.getParent(n));
+            else
+                assertSame(t.getParent(), tree.getTree(tree.getParent(n)));
+
+            // Children through the cursor
+            CompactTree.Cursor cursor = tree.cursor(n);
+            if (t.isLeaf())
+                assertFalse(cursor.toFirstChild());
+            else {
+                assertTrue(cursor.toFirstChild());
+                for (int i = 0; i < t.getChildren().size(); i++) {
+                    assertSame(t.getChildren().get(i), tree.getTree(cursor.node()));
+                    assertEquals(i < t.getChildren().size() - 1, cursor.toNextSibling());
+                }
+                assertTrue(cursor.toParent());
+                assertEquals(n, cursor.node());
+            }
+
+            // Post-order traversal of the subtree
+            List<ITree> postOrder = TreeUtils.postOrder(t);
+            int k = 0;
+            for (int m = tree.postOrderFirst(n); m != CompactTree.NONE; m = tree.postOrderNext(n, m))
+                assertSame(postOrder.get(k++), tree.getTree(m));
+            assertEquals(postOrder.size(), k);
+
+            for (int d = 0; d < tree.size(); d++)
+                assertEquals(t.getDescendants().contains(tree.getTree(d)), tree.isDescendant(n, d));
+        }
+    }
+
+    @Test
+    public void testCompactTreeIsClone() {
+        ITree src = TreeLoader.getDummySrc();
+        ITree dst = TreeLoader.getDummyDst();
+        LabelDictionary labels = new LabelDictionary();
+        CompactTree srcTree = new CompactTree(src, labels);
+        CompactTree dstTree = new CompactTree(dst, labels);
+        for (int n = 0; n < srcTree.size(); n++)
+            for (int m = 0; m < dstTree.size(); m++)
+                assertEquals(srcTree.getTree(n).isClone(dstTree.getTree(m)), srcTree.isClone(n, dstTree, m));
+        CompactTree copy = new CompactTree(src.deepCopy(), labels);
+        assertTrue(srcTree.isClone(0, copy, 0));
+    }
+
+    @Test
+    public void testCompactTreeSharedLabels() {
+        TreeContext src = new TreeContext();
+        TreeContext dst = new TreeContext();
+        dst.setLabelDictionary(src.getLabelDictionary());
+        ITree a = src.createTree(0, "foo", null);
+        ITree b = dst.createTree(0, "foo", null);
+        b.addChild(dst.createTree(0, "bar", null));
+        src.setRoot(a);
+        dst.setRoot(b);
+        src.validate();
+        dst.validate();
+
+        LabelDictionary labels = LabelDictionary.shared(a, b);
+        assertSame(src.getLabelDictionary(), labels);
+        CompactTree srcTree = new CompactTree(a, labels);
+        CompactTree dstTree = new CompactTree(b, labels);
+        assertEquals(a.getLabelId(), srcTree.getLabelId(0));
+        assertEquals(b.getChild(0).getLabelId(), dstTree.getLabelId(1));
+        assertEquals(2, labels.size());
+
+        // Trees without a shared dictionary get a dictionary of their own
+        assertNotSame(labels, LabelDictionary.shared(a, new TreeContext().createTree(0, "foo", null)));
+    }
 }
@@ -63,4 +63,34 @@ public class TestZsMatcher {
         assertTrue(matcher.getMappings().has(src.getChild(0).getChild(2), dst.getChild(2)));
     }
 
+    @Test
+    public void testReusedWorkspace() {
+        // A larger diff first, so that the smaller ones run in its pooled matrices
+        Pair<TreeContext, TreeContext> dummy = TreeLoader.getDummyPair();
+        new ZsMatcher(dummy.getFirst().getRoot(), dummy.getSecond().getRoot(), new MappingStore()).match();
+        testWithCustomExample();
+        testWithSlideExample();
+    }
+
+    @Test
+    public void testBudget() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getDummyPair();
+        ITree src = trees.getFirst().getRoot();
+        ITree dst = trees.getSecond().getRoot();
+        Matcher unbounded = new ZsMatcher(src, dst, new MappingStore());
+        unbounded.match();
+        int total = src.getSize() + dst.getSize();
+        boolean mapped = false;
+        for (int budget = 0; budget <= total; budget++) {
+            Matcher bounded = new ZsMatcher(src, dst, new MappingStore(), budget);
+            bounded.match();
+            // Below the edit distance nothing is mapped, above it the mappings are the same as without budget
+            if (mapped || !bounded.getMappingSet().isEmpty()) {
+                assertEquals(unbounded.getMappingSet(), bounded.getMappingSet());
+                mapped = true;
+            }
+        }
+        assertTrue(mapped);
+    }
+
 }